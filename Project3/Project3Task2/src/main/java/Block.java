@@ -1,7 +1,9 @@
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import java.sql.Timestamp;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.math.BigInteger;
+import java.util.List;
+import java.util.Objects;
 
 /**
  * The Block class represents a single block in a blockchain.
@@ -40,15 +42,56 @@ public class Block {
     private String previousHash;
 
     /**
-     * A number used once that is incremented to find a valid hash.
+     * A number used once that is incremented to find a valid hash. Kept as a primitive so
+     * that mining does not allocate a new object per attempt.
      */
-    private BigInteger nonce;
+    private long nonce;
+
+    /**
+     * The nonce once it no longer fits in a long, or null while the primitive nonce is in use.
+     */
+    private BigInteger bigNonce;
 
     /**
      * The number of leading zeros required in the block's hash.
      */
     private int difficulty;
 
+    /**
+     * The number of leading zero bits required in the block's hash when its difficulty was set
+     * in bits, or 0 when it is counted in hex digits. Bit-level difficulty lets the work grow
+     * in steps of 2x instead of 16x; difficulty then holds the whole hex digits it covers.
+     */
+    private int difficultyBits;
+
+    /**
+     * The Merkle root of the block's transactions when it holds a batch of them as a JSON array,
+     * or null for a block whose data is a single transaction. When present, the hash covers
+     * the root instead of the data, and the root follows every change to the data.
+     */
+    private String merkleRoot;
+
+    /**
+     * Reads and writes the transaction lists of batched blocks.
+     */
+    private static final Gson GSON = new Gson();
+
+    /**
+     * Ends the hashed input of a batched block, which a plain block's input never ends with.
+     */
+    static final String MERKLE_TAG = "m";
+
+    /**
+     * The hash of the block's current fields, or null when it has not been computed since the
+     * last change.
+     */
+    private volatile String cachedHash;
+
+    /**
+     * The chain this block belongs to, told about changes to hashed fields; null until added.
+     */
+    private BlockChain owner;
+
     /**
      * Constructs a new Block instance with the specified parameters.
      *
@@ -63,36 +106,98 @@ public class Block {
         this.data = data;
         this.difficulty = difficulty;
         this.previousHash = "";
-        this.nonce = BigInteger.ZERO;
+        this.nonce = 0;
+    }
+
+    /**
+     * Constructs a block holding a batch of transactions. Its data is the transactions as a
+     * JSON array, and its hash commits to them through their Merkle root.
+     *
+     * @param index        The block's index in the blockchain.
+     * @param timestamp    The timestamp marking the block's creation.
+     * @param transactions The transactions, in order.
+     * @param difficulty   The required difficulty level (number of leading zeros in the hash).
+     * @return The block.
+     */
+    public static Block ofTransactions(int index, Timestamp timestamp, List<String> transactions, int difficulty) {
+        Block block = new Block(index, timestamp, GSON.toJson(transactions), difficulty);
+        block.commitToTransactions();
+        return block;
+    }
+
+    /**
+     * Makes the block hash its transactions' Merkle root instead of its data, as blocks built
+     * with ofTransactions() do. Used when such a block is read back from storage.
+     */
+    void commitToTransactions() {
+        merkleRoot = MerkleTree.root(parseTransactions(data));
+        cachedHash = null;
     }
 
     /**
      * Calculates the SHA-256 hash of the block based on its properties.
      *
-     * The hash is computed by concatenating the block's index, timestamp, data,
-     * previous hash, nonce, and difficulty into a single string, which is then hashed.
+     * The hash is computed by concatenating the block's index, timestamp, data (or, for a
+     * batched block, its Merkle root), previous hash, nonce, and difficulty into a single
+     * string, which is then hashed; a batched block ends it with a tag.
+     * The result is remembered until one of those fields changes.
      *
      * @return A hexadecimal string representation of the computed SHA-256 hash.
      * @throws RuntimeException if the SHA-256 algorithm is not available.
      */
     public String calculateHash() {
-        String input = index + timestamp.toString() + data + previousHash + nonce.toString() + difficulty;
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hashBytes = digest.digest(input.getBytes());
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hashBytes) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) {
-                    hexString.append('0');
-                }
-                hexString.append(hex);
-            }
-            return hexString.toString();
-        } catch (NoSuchAlgorithmException e) {
-            // This exception should not occur for SHA-256. Wrap it in a runtime exception.
-            throw new RuntimeException(e);
+        String hash = cachedHash;
+        if (hash == null) {
+            hash = bigNonce != null ? calculateHash(bigNonce) : BlockHasher.sha256Hex(hashPrefix() + nonce + hashSuffix());
+            cachedHash = hash;
         }
+        return hash;
+    }
+
+    /**
+     * Calculates the SHA-256 hash this block would have with the given nonce, without
+     * changing the block itself. This lets several mining threads try different nonces
+     * against the same block at the same time.
+     *
+     * @param candidateNonce The nonce to hash the block with.
+     * @return A hexadecimal string representation of the computed SHA-256 hash.
+     * @throws RuntimeException if the SHA-256 algorithm is not available.
+     */
+    public String calculateHash(BigInteger candidateNonce) {
+        return BlockHasher.sha256Hex(hashPrefix() + candidateNonce.toString() + hashSuffix());
+    }
+
+    /**
+     * Returns the part of the hashed input that comes before the nonce.
+     *
+     * @return The index, timestamp, data and previous hash, concatenated.
+     */
+    String hashPrefix() {
+        return hashHead() + previousHash;
+    }
+
+    /**
+     * Returns the part of the hashed input that comes before the previous hash. Unlike the rest
+     * of the prefix, it does not depend on the other blocks of the chain.
+     *
+     * @return The index, timestamp and data (or the Merkle root), concatenated.
+     */
+    String hashHead() {
+        return index + timestamp.toString() + (merkleRoot != null ? merkleRoot : data);
+    }
+
+    /**
+     * Returns the part of the hashed input that comes after the nonce: the difficulty in hex
+     * digits, or "b" and the number of bits for a bit-level difficulty, then MERKLE_TAG for a
+     * batched block. Plain blocks counted in hex digits therefore hash exactly as they always
+     * have, and since their input never ends in the tag, no data can make a plain block hash
+     * like a batched one.
+     *
+     * @return The difficulty and the batch tag, as a string.
+     */
+    String hashSuffix() {
+        String suffix = difficultyBits > 0 ? "b" + difficultyBits : Integer.toString(difficulty);
+        return merkleRoot != null ? suffix + MERKLE_TAG : suffix;
     }
 
     /**
@@ -100,21 +205,61 @@ public class Block {
      *
      * This method repeatedly increments the nonce and recalculates the block's hash until a hash
      * is found that begins with the required number of zeroes, as dictated by the difficulty level.
+     * The search runs on a BlockHasher, which reuses the header bytes and digest between attempts.
      *
      * @return The valid hash that meets the difficulty requirement.
      */
     public String proofOfWork() {
+        if (bigNonce == null) {
+            BlockHasher hasher = new BlockHasher(this);
+            for (long candidate = nonce; ; candidate++) {
+                if (hasher.tryNonce(candidate)) {
+                    if (candidate != nonce) {
+                        nonce = candidate;
+                        changed(index);
+                    }
+                    cachedHash = hasher.hashHex();
+                    return cachedHash;
+                }
+                if (candidate == Long.MAX_VALUE) {
+                    break;
+                }
+            }
+            // The long range is exhausted; carry on counting with BigInteger.
+            bigNonce = BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE);
+        }
         while (true) {
-            String hash = calculateHash();
+            String hash = calculateHash(bigNonce);
             // Check if the hash has the required number of leading zeros
-            if (hash.substring(0, difficulty).equals(new String(new char[difficulty]).replace('\0', '0'))) {
+            if (meetsDifficulty(hash)) {
+                changed(index);
+                cachedHash = hash;
                 return hash;
             }
             // Increment the nonce and try again
-            nonce = nonce.add(BigInteger.ONE);
+            bigNonce = bigNonce.add(BigInteger.ONE);
         }
     }
 
+    /**
+     * Checks whether the given hash starts with the number of leading zero bits this block's
+     * difficulty requires (four per hex digit for a difficulty counted in hex digits).
+     *
+     * @param hash A hexadecimal hash string.
+     * @return true if the hash meets the difficulty requirement.
+     */
+    public boolean meetsDifficulty(String hash) {
+        int bits = getDifficultyBits();
+        int zeroDigits = bits / 4;
+        for (int i = 0; i < zeroDigits; i++) {
+            if (hash.charAt(i) != '0') {
+                return false;
+            }
+        }
+        int remainingBits = bits % 4;
+        return remainingBits == 0 || Character.digit(hash.charAt(zeroDigits), 16) < (16 >> remainingBits);
+    }
+
     // Getters and setters for block properties
 
     /**
@@ -135,6 +280,63 @@ public class Block {
         return difficulty;
     }
 
+    /**
+     * Returns the number of leading zero bits required in the block's hash: the bit-level
+     * difficulty if one was set, otherwise four bits per hex digit of difficulty.
+     *
+     * @return The required leading zero bits.
+     */
+    public int getDifficultyBits() {
+        return difficultyBits > 0 ? difficultyBits : difficulty * 4;
+    }
+
+    /**
+     * Returns whether the block's difficulty was set in bits rather than hex digits.
+     *
+     * @return true for a bit-level difficulty.
+     */
+    public boolean hasBitDifficulty() {
+        return difficultyBits > 0;
+    }
+
+    /**
+     * Returns the Merkle root of the block's transactions.
+     *
+     * @return The root in hexadecimal, or null for a single-transaction block.
+     */
+    public String getMerkleRoot() {
+        return merkleRoot;
+    }
+
+    /**
+     * Returns the block's transactions: the elements of the JSON array for a batched block, or
+     * the data as the only transaction otherwise. In a batched block, data that is no longer a
+     * JSON array of strings (after corruption, say) counts as a single transaction.
+     *
+     * @return The transactions, in order.
+     */
+    public List<String> getTransactions() {
+        return merkleRoot != null ? parseTransactions(data) : List.of(data);
+    }
+
+    /**
+     * Reads a JSON array of transactions.
+     *
+     * @param data The block data.
+     * @return The transactions, or the data as the only one if it is not a JSON array of strings.
+     */
+    private static List<String> parseTransactions(String data) {
+        try {
+            String[] transactions = GSON.fromJson(data, String[].class);
+            if (transactions != null) {
+                return List.of(transactions);
+            }
+        } catch (JsonParseException | NullPointerException e) {
+            // Not a JSON array of strings; fall through to a single transaction.
+        }
+        return List.of(data);
+    }
+
     /**
      * Returns the index of the block in the blockchain.
      *
@@ -150,6 +352,24 @@ public class Block {
      * @return The block's nonce.
      */
     public BigInteger getNonce() {
+        return bigNonce != null ? bigNonce : BigInteger.valueOf(nonce);
+    }
+
+    /**
+     * Returns whether the nonce still fits in a long, so that getNonceLong() can be used.
+     *
+     * @return true if the primitive nonce is in use.
+     */
+    public boolean hasLongNonce() {
+        return bigNonce == null;
+    }
+
+    /**
+     * Returns the nonce as a primitive long. Only meaningful when hasLongNonce() is true.
+     *
+     * @return The block's nonce.
+     */
+    public long getNonceLong() {
         return nonce;
     }
 
@@ -177,7 +397,13 @@ public class Block {
      * @param data The new transaction data.
      */
     public void setData(String data) {
-        this.data = data;
+        if (!Objects.equals(this.data, data)) {
+            this.data = data;
+            if (merkleRoot != null) {
+                merkleRoot = MerkleTree.root(getTransactions());
+            }
+            changed(index);
+        }
     }
 
     /**
@@ -186,7 +412,41 @@ public class Block {
      * @param difficulty The new difficulty level (number of leading zeros required).
      */
     public void setDifficulty(int difficulty) {
-        this.difficulty = difficulty;
+        if (this.difficulty != difficulty || difficultyBits > 0) {
+            updateDifficulty(difficulty, 0);
+        }
+    }
+
+    /**
+     * Sets a bit-level difficulty: the number of leading zero bits required in the block's hash.
+     *
+     * @param bits The new difficulty in bits; at least 1.
+     * @throws IllegalArgumentException if bits is less than 1.
+     */
+    public void setDifficultyBits(int bits) {
+        if (bits < 1) {
+            throw new IllegalArgumentException("A bit-level difficulty must be at least 1 bit; use setDifficulty(0) for none.");
+        }
+        if (difficultyBits != bits) {
+            updateDifficulty(bits / 4, bits);
+        }
+    }
+
+    /**
+     * Changes the difficulty and tells the owning chain, which updates its totals and records
+     * the changed block together.
+     *
+     * @param newDifficulty The new difficulty in whole hex digits.
+     * @param newBits       The new bit-level difficulty, or 0 for hex digits.
+     */
+    private void updateDifficulty(int newDifficulty, int newBits) {
+        int oldBits = getDifficultyBits();
+        difficulty = newDifficulty;
+        difficultyBits = newBits;
+        cachedHash = null;
+        if (owner != null) {
+            owner.difficultyChanged(this, oldBits, getDifficultyBits());
+        }
     }
 
     /**
@@ -195,7 +455,11 @@ public class Block {
      * @param index The new index.
      */
     public void setIndex(int index) {
-        this.index = index;
+        if (this.index != index) {
+            int oldIndex = this.index;
+            this.index = index;
+            changed(Math.min(oldIndex, index));
+        }
     }
 
     /**
@@ -204,7 +468,38 @@ public class Block {
      * @param previousHash The previous block's hash.
      */
     public void setPreviousHash(String previousHash) {
-        this.previousHash = previousHash;
+        if (!Objects.equals(this.previousHash, previousHash)) {
+            this.previousHash = previousHash;
+            changed(index);
+        }
+    }
+
+    /**
+     * Sets the nonce used in the hash calculation. Used by miners that search for the
+     * nonce outside of proofOfWork().
+     *
+     * @param nonce The new nonce.
+     */
+    public void setNonce(BigInteger nonce) {
+        if (nonce.signum() >= 0 && nonce.bitLength() < Long.SIZE) {
+            setNonce(nonce.longValue());
+        } else if (!nonce.equals(bigNonce)) {
+            this.bigNonce = nonce;
+            changed(index);
+        }
+    }
+
+    /**
+     * Sets the nonce used in the hash calculation from a primitive value.
+     *
+     * @param nonce The new nonce; must not be negative.
+     */
+    public void setNonce(long nonce) {
+        if (this.nonce != nonce || bigNonce != null) {
+            this.nonce = nonce;
+            this.bigNonce = null;
+            changed(index);
+        }
     }
 
     /**
@@ -213,7 +508,43 @@ public class Block {
      * @param timestamp The new timestamp.
      */
     public void setTimestamp(Timestamp timestamp) {
-        this.timestamp = timestamp;
+        if (!Objects.equals(this.timestamp, timestamp)) {
+            this.timestamp = timestamp;
+            changed(index);
+        }
+    }
+
+    /**
+     * Stores a hash computed elsewhere for the block's current fields, such as the winning
+     * hash found by a miner, so that calculateHash() does not have to compute it again.
+     *
+     * @param hash The hash of the block's current fields.
+     */
+    void cacheHash(String hash) {
+        cachedHash = hash;
+    }
+
+    /**
+     * Records the chain this block has been added to, so that it can be told when a hashed
+     * field changes.
+     *
+     * @param owner The chain holding this block.
+     */
+    void setOwner(BlockChain owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * Drops the cached hash and tells the owning chain, if any, that a hashed field of this
+     * block has changed.
+     *
+     * @param changedIndex The lowest chain index affected by the change.
+     */
+    private void changed(int changedIndex) {
+        cachedHash = null;
+        if (owner != null) {
+            owner.blockChanged(this, changedIndex);
+        }
     }
 
     /**
@@ -225,6 +556,9 @@ public class Block {
      */
     @Override
     public String toString() {
-        return "{\"index\": " + index + ", \"time stamp\": \"" + timestamp.toString() + "\", \"Tx\": \"" + data + "\", \"PrevHash\": \"" + previousHash + "\", \"nonce\": " + nonce + ", \"difficulty\": " + difficulty + "}";
+        String tx = merkleRoot != null ? GSON.toJson(getTransactions()) : "\"" + data + "\"";
+        return "{\"index\": " + index + ", \"time stamp\": \"" + timestamp.toString() + "\", \"Tx\": " + tx + ", \"PrevHash\": \"" + previousHash + "\", \"nonce\": " + getNonce() + ", \"difficulty\": " + difficulty
+                + (difficultyBits > 0 ? ", \"difficultyBits\": " + difficultyBits : "")
+                + (merkleRoot != null ? ", \"merkleRoot\": \"" + merkleRoot + "\"" : "") + "}";
     }
 }
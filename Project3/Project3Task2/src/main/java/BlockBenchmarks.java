@@ -0,0 +1,451 @@
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParser;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * The BlockBenchmarks class measures the blockchain's hot paths and writes the results as JSON,
+ * so that they can be compared from commit to commit.
+ *
+ * Each benchmark is an operation that is run repeatedly: first for a number of warm-up
+ * iterations, which are discarded, then for a number of measured iterations. Every iteration
+ * runs the operation until a minimum time has passed and records the average time per
+ * operation. The operations return a value that is folded into a sink, so the JIT cannot
+ * remove them. The report gives the mean, standard deviation, minimum and maximum of the
+ * per-iteration averages, in nanoseconds per operation.
+ *
+ * Covered: Block.calculateHash(), proofOfWork() at difficulties 1 to 5, encoding and decoding a
+ * block with BlockCodec and as JSON, isChainValid() and
+ * isChainValidParallel() on 1,000 and 100,000-block chains, repairChain() after corrupting a
+ * block, BlockChain.toString(), checking a client's public key with and without
+ * PublicKeyCache at 1024 and 2048-bit keys, and checking request signatures one at a time and
+ * in batches on SignatureVerifier pools of increasing size.
+ *
+ * Run with "mvn -Pbench verify" or directly; arguments are an optional regular expression
+ * selecting benchmarks by name and "-quick" for fewer, shorter iterations. Results go to
+ * target/benchmarks/results-<time>.json and target/benchmarks/latest.json, or to the directory
+ * named by -Dbench.output.
+ *
+ * Author: Vishakha Pathak (vmpathak@andrew.cmu.edu)
+ * Last Modified: 10/18/2026
+ */
+public class BlockBenchmarks {
+    /**
+     * Collects the values returned by the operations, so that they are not optimized away.
+     */
+    private static long sink;
+
+    /**
+     * The number of warm-up iterations.
+     */
+    private final int warmupIterations;
+
+    /**
+     * The number of measured iterations.
+     */
+    private final int measuredIterations;
+
+    /**
+     * The minimum length of one iteration, in milliseconds.
+     */
+    private final long iterationMillis;
+
+    /**
+     * Selects the benchmarks to run by name.
+     */
+    private final Pattern filter;
+
+    /**
+     * The results so far, in the order the benchmarks ran.
+     */
+    private final List<Result> results = new ArrayList<>();
+
+    /**
+     * Constructs a harness.
+     *
+     * @param warmupIterations   The number of warm-up iterations.
+     * @param measuredIterations The number of measured iterations.
+     * @param iterationMillis    The minimum length of one iteration, in milliseconds.
+     * @param filter             Selects the benchmarks to run by name.
+     */
+    public BlockBenchmarks(int warmupIterations, int measuredIterations, long iterationMillis, Pattern filter) {
+        this.warmupIterations = warmupIterations;
+        this.measuredIterations = measuredIterations;
+        this.iterationMillis = iterationMillis;
+        this.filter = filter;
+    }
+
+    /**
+     * The result of one benchmark; written to the JSON report as is.
+     */
+    static class Result {
+        String name;
+        Map<String, Object> params;
+        int iterations;
+        long operations;
+        double meanNanosPerOp;
+        double stdDevNanosPerOp;
+        double minNanosPerOp;
+        double maxNanosPerOp;
+        double opsPerSecond;
+    }
+
+    /**
+     * The report written to the results file.
+     */
+    static class Report {
+        String commit;
+        String timestamp;
+        String javaVersion;
+        int availableProcessors;
+        int warmupIterations;
+        int measuredIterations;
+        long iterationMillis;
+        List<Result> results;
+    }
+
+    /**
+     * Runs one benchmark if its name matches the filter, and records the result.
+     *
+     * @param name      The benchmark's name.
+     * @param params    The benchmark's parameters, for the report.
+     * @param operation The operation to measure; its return value goes to the sink.
+     */
+    void run(String name, Map<String, Object> params, LongSupplier operation) {
+        if (!filter.matcher(name).find()) {
+            return;
+        }
+        long operations = 0;
+        double[] nanosPerOp = new double[measuredIterations];
+        for (int iteration = -warmupIterations; iteration < measuredIterations; iteration++) {
+            long count = 0;
+            long start = System.nanoTime();
+            long minimumEnd = start + iterationMillis * 1_000_000L;
+            long now;
+            do {
+                sink += operation.getAsLong();
+                count++;
+                now = System.nanoTime();
+            } while (now < minimumEnd);
+            if (iteration >= 0) {
+                nanosPerOp[iteration] = (double) (now - start) / count;
+                operations += count;
+            }
+        }
+
+        double mean = 0;
+        double min = Double.MAX_VALUE;
+        double max = 0;
+        for (double value : nanosPerOp) {
+            mean += value / nanosPerOp.length;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        double variance = 0;
+        for (double value : nanosPerOp) {
+            variance += (value - mean) * (value - mean) / Math.max(1, nanosPerOp.length - 1);
+        }
+        Result result = new Result();
+        result.name = name;
+        result.params = params;
+        result.iterations = measuredIterations;
+        result.operations = operations;
+        result.meanNanosPerOp = mean;
+        result.stdDevNanosPerOp = Math.sqrt(variance);
+        result.minNanosPerOp = min;
+        result.maxNanosPerOp = max;
+        result.opsPerSecond = 1_000_000_000.0 / mean;
+        results.add(result);
+        System.out.printf("%-32s %-36s %14.0f ns/op  +- %5.1f%%  (%d ops)%n", name, params,
+                mean, mean == 0 ? 0 : 100 * result.stdDevNanosPerOp / mean, operations);
+    }
+
+    /**
+     * Runs every benchmark.
+     */
+    void runAll() {
+        Block block = new Block(42, new Timestamp(1_700_000_000_000L), "Alice pays Bob 10 DSCoin", 2);
+        block.setPreviousHash(BlockHasher.sha256Hex("previous"));
+        long[] nonce = {0};
+        run("Block.calculateHash", params(), () -> {
+            // Changing the nonce clears the memoized hash, so every call hashes.
+            block.setNonce(nonce[0]++);
+            return block.calculateHash().charAt(0);
+        });
+
+        for (int difficulty = 1; difficulty <= 5; difficulty++) {
+            int d = difficulty;
+            long[] counter = {0};
+            run("Block.proofOfWork", params("difficulty", d), () -> {
+                Block candidate = new Block(1, new Timestamp(1_700_000_000_000L + counter[0]++), "proof-of-work", d);
+                candidate.setPreviousHash(block.calculateHash());
+                candidate.proofOfWork();
+                return candidate.getNonceLong();
+            });
+        }
+
+        // The binary codec against the JSON form, for a block with 32 bytes of data
+        Block encoded = new Block(42, new Timestamp(1_700_000_000_000L), "transaction 00000042 " + "t".repeat(11), 2);
+        encoded.setPreviousHash(block.calculateHash());
+        encoded.setNonce(137);
+        byte[] binary = BlockCodec.encode(encoded);
+        String json = encoded.toString();
+        run("BlockCodec.encode", params("bytes", binary.length), () -> BlockCodec.encode(encoded).length);
+        run("BlockCodec.decode", params("bytes", binary.length), () -> BlockCodec.decode(binary).getIndex());
+        run("Block.toString", params("bytes", json.getBytes(StandardCharsets.UTF_8).length), () -> encoded.toString().length());
+        run("JsonParser.parseString", params("bytes", json.getBytes(StandardCharsets.UTF_8).length), () ->
+                JsonParser.parseString(json).getAsJsonObject().get("index").getAsInt());
+
+        for (int length : new int[]{1_000, 100_000}) {
+            if (!selected("BlockChain.isChainValid", "BlockChain.isChainValidParallel", "BlockChain.toString",
+                    "BlockChain.repairChain")) {
+                break;
+            }
+            BlockChain chain = buildChain(length);
+            Map<String, Object> params = params("blocks", length);
+            run("BlockChain.isChainValid", params, () -> {
+                forgetVerification(chain);
+                return chain.isChainValid().length();
+            });
+            run("BlockChain.isChainValidParallel", params, () -> {
+                forgetVerification(chain);
+                return chain.isChainValidParallel().length();
+            });
+            run("BlockChain.toString", params, () -> chain.toString().length());
+            if (length == 1_000) {
+                long[] round = {0};
+                PrintStream console = System.out;
+                run("BlockChain.repairChain", params("blocks", length, "corruptedIndex", length / 2), () -> {
+                    chain.getBlock(length / 2).setData("corrupted " + round[0]++);
+                    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+                    try {
+                        return chain.repairChain().getBlocksRemined();
+                    } finally {
+                        System.setOut(console);
+                    }
+                });
+            }
+            chain.close();
+        }
+
+        for (int keyBits : new int[]{1024, 2048}) {
+            if (!selected("PublicKeyCache.verify")) {
+                break;
+            }
+            SigningClientTCP.initRSAKeys(keyBits);
+            RequestMessage request = new RequestMessage();
+            request.setCommand("viewStatus");
+            SigningClientTCP.signRequest(request);
+            String clientId = request.getClientId();
+            String exponent = request.getPublicKeyE();
+            String modulus = request.getPublicKeyN();
+            // Uncached, every request recomputes the client identifier and parses the key.
+            run("PublicKeyCache.verify", params("keyBits", keyBits, "cached", false), () ->
+                    new PublicKeyCache(1).lookup(clientId, exponent, modulus).getModulus().bitLength());
+            PublicKeyCache.Session session = new PublicKeyCache(1).newSession();
+            run("PublicKeyCache.verify", params("keyBits", keyBits, "cached", true), () ->
+                    session.verify(clientId, exponent, modulus).getModulus().bitLength());
+        }
+
+        for (int keyBits : new int[]{1024, 2048}) {
+            if (!selected("SignatureVerifier.checkNow", "SignatureVerifier.checkAll")) {
+                break;
+            }
+            // A batch of pipelined requests, each signing a different transaction
+            SigningClientTCP.initRSAKeys(keyBits);
+            Gson gson = new Gson();
+            List<String> lines = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                RequestMessage request = new RequestMessage();
+                request.setCommand("addTransaction");
+                request.setDifficulty(2);
+                request.setTransaction("payment " + i);
+                SigningClientTCP.signRequest(request);
+                lines.add(gson.toJson(request));
+            }
+            PublicKeyCache.Session keys = VerifyingServerTCP.newKeySession();
+            int[] next = {0};
+            // The server logs every request it checks
+            PrintStream console = System.out;
+            run("SignatureVerifier.checkNow", params("keyBits", keyBits), () -> {
+                System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+                try {
+                    return SignatureVerifier.checkNow(lines.get(next[0]++ % lines.size()), keys).error == null ? 1 : 0;
+                } finally {
+                    System.setOut(console);
+                }
+            });
+            for (int threads = 1; threads <= Math.max(2, Runtime.getRuntime().availableProcessors()); threads *= 2) {
+                SignatureVerifier verifier = new SignatureVerifier(threads);
+                run("SignatureVerifier.checkAll", params("keyBits", keyBits, "threads", threads, "batch", lines.size()), () -> {
+                    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+                    try {
+                        return verifier.checkAll(lines, keys).size();
+                    } finally {
+                        System.setOut(console);
+                    }
+                });
+                verifier.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Returns whether any of the named benchmarks matches the filter, to skip building chains
+     * nothing will use.
+     *
+     * @param names The benchmark names.
+     * @return true if at least one of them will run.
+     */
+    private boolean selected(String... names) {
+        for (String name : names) {
+            if (filter.matcher(name).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns benchmark parameters in the order given, as alternating names and values.
+     *
+     * @param namesAndValues The parameter names and values.
+     * @return The parameters.
+     */
+    private static Map<String, Object> params(Object... namesAndValues) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < namesAndValues.length; i += 2) {
+            params.put((String) namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return params;
+    }
+
+    /**
+     * Makes the next verification check every block again, by changing block 1 and back. The
+     * other blocks keep their memoized hashes, as they would on a running server.
+     *
+     * @param chain The chain.
+     */
+    private static void forgetVerification(BlockChain chain) {
+        Block block = chain.getBlock(1);
+        String data = block.getData();
+        block.setData(data + " ");
+        block.setData(data);
+    }
+
+    /**
+     * Builds a chain of difficulty-1 blocks with fixed timestamps.
+     *
+     * @param length The number of blocks.
+     * @return The chain.
+     */
+    private static BlockChain buildChain(int length) {
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            BlockChain chain = new BlockChain();
+            for (int i = chain.getChainSize(); i < length; i++) {
+                chain.addBlock(new Block(i, new Timestamp(1_700_000_000_000L + i), "transaction " + i, 1));
+            }
+            return chain;
+        } finally {
+            System.setOut(console);
+        }
+    }
+
+    /**
+     * Writes the results as JSON to a timestamped file and to latest.json in the directory.
+     *
+     * @param directory The output directory.
+     * @return The timestamped file.
+     * @throws IOException if the files cannot be written.
+     */
+    Path writeReport(Path directory) throws IOException {
+        Report report = new Report();
+        report.commit = currentCommit();
+        report.timestamp = Instant.now().toString();
+        report.javaVersion = System.getProperty("java.version");
+        report.availableProcessors = Runtime.getRuntime().availableProcessors();
+        report.warmupIterations = warmupIterations;
+        report.measuredIterations = measuredIterations;
+        report.iterationMillis = iterationMillis;
+        report.results = results;
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        String json = gson.toJson(report);
+
+        Files.createDirectories(directory);
+        Path file = directory.resolve("results-" + report.timestamp.replace(':', '-') + ".json");
+        Files.writeString(file, json, StandardCharsets.UTF_8);
+        Files.writeString(directory.resolve("latest.json"), json, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    /**
+     * Returns the commit being benchmarked, from -Dbench.commit or "git rev-parse HEAD".
+     *
+     * @return The commit id, or "unknown".
+     */
+    private static String currentCommit() {
+        String commit = System.getProperty("bench.commit");
+        if (commit != null) {
+            return commit;
+        }
+        try {
+            Process git = new ProcessBuilder("git", "rev-parse", "HEAD").redirectErrorStream(true).start();
+            try (BufferedReader out = new BufferedReader(new InputStreamReader(git.getInputStream(), StandardCharsets.UTF_8))) {
+                String line = out.readLine();
+                return git.waitFor() == 0 && line != null ? line.trim() : "unknown";
+            }
+        } catch (IOException e) {
+            return "unknown";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "unknown";
+        }
+    }
+
+    /**
+     * Runs the benchmarks and writes the JSON report.
+     *
+     * @param args Command line arguments: an optional regular expression selecting benchmarks
+     *             by name, and "-quick" for fewer, shorter iterations.
+     */
+    public static void main(String[] args) {
+        boolean quick = false;
+        String pattern = "";
+        for (String arg : args) {
+            if (arg.equals("-quick")) {
+                quick = true;
+            } else {
+                pattern = arg;
+            }
+        }
+        BlockBenchmarks benchmarks = quick
+                ? new BlockBenchmarks(1, 3, 200, Pattern.compile(pattern))
+                : new BlockBenchmarks(3, 5, 1000, Pattern.compile(pattern));
+        benchmarks.runAll();
+        try {
+            Path file = benchmarks.writeReport(Paths.get(System.getProperty("bench.output", "target/benchmarks")));
+            System.out.println("Results written to " + file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,326 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The BlockCodec class is a compact, versioned binary encoding of a Block, used by the block
+ * log and by the server's downloadBlockchain command. Block.toString() remains the readable
+ * JSON form.
+ *
+ * An encoded block is:
+ *
+ *   byte    version (currently 2)
+ *   byte    flags: bits 0-1 previous hash form (0 empty, 1 raw, 2 string, 3 null), bit 2 big nonce,
+ *           bit 3 difficulty in bits, bit 4 batched block with a Merkle root
+ *   varint  index
+ *   varint  timestamp, milliseconds since the epoch
+ *   varint  nanoseconds within the millisecond
+ *   [32 bytes raw previous hash | varint length + UTF-8 previous hash]
+ *   [varint nonce | varint length + two's-complement nonce bytes]
+ *   varint  difficulty, in hex digits or, with flag bit 3, in bits
+ *   varint  length + UTF-8 data
+ *
+ * Varints are unsigned LEB128: seven bits per byte, low bits first. A previous hash is stored
+ * as 32 raw bytes whenever it is a 64-digit lower-case hex SHA-256 hash, so a typical block
+ * costs about 48 bytes plus its data, against about 175 plus its data for the JSON. A null
+ * previous hash is kept apart from an empty one, since the two hash differently; a block
+ * without data cannot be encoded.
+ *
+ * A chain is encoded as a varint block count followed by each block as a varint length and the
+ * encoded bytes. Only the current version is read; anything else is rejected. BlockBenchmarks
+ * compares the encoding's size and speed with the JSON.
+ *
+ * Author: Vishakha Pathak (vmpathak@andrew.cmu.edu)
+ * Last Modified: 10/18/2026
+ */
+public class BlockCodec {
+    /**
+     * The version of the encoding written by encode() and accepted by decode().
+     */
+    static final int VERSION = 2;
+
+    private static final int EMPTY_PREVIOUS_HASH = 0;
+    private static final int RAW_PREVIOUS_HASH = 1;
+    private static final int STRING_PREVIOUS_HASH = 2;
+    private static final int NULL_PREVIOUS_HASH = 3;
+    private static final int PREVIOUS_HASH_MASK = 3;
+    private static final int BIG_NONCE = 4;
+    private static final int BIT_DIFFICULTY = 8;
+    private static final int MERKLE_ROOT = 16;
+
+    /**
+     * Not instantiated; all methods are static.
+     */
+    private BlockCodec() {
+    }
+
+    /**
+     * Encodes a block.
+     *
+     * @param block The block.
+     * @return The encoded bytes.
+     * @throws IllegalArgumentException if the block has no data.
+     */
+    public static byte[] encode(Block block) {
+        String data = block.getData();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(48 + (data == null ? 0 : data.length()));
+        write(block, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes an encoded block to a stream.
+     *
+     * @param block The block.
+     * @param out   The stream.
+     * @throws IllegalArgumentException if the block has no data.
+     */
+    static void write(Block block, ByteArrayOutputStream out) {
+        String data = block.getData();
+        if (data == null) {
+            throw new IllegalArgumentException("Block " + block.getIndex() + " has no data to encode.");
+        }
+        String previousHash = block.getPreviousHash();
+        byte[] rawHash = rawHash(previousHash);
+        int flags = previousHash == null ? NULL_PREVIOUS_HASH
+                : previousHash.isEmpty() ? EMPTY_PREVIOUS_HASH
+                : rawHash != null ? RAW_PREVIOUS_HASH : STRING_PREVIOUS_HASH;
+        if (!block.hasLongNonce()) {
+            flags |= BIG_NONCE;
+        }
+        if (block.hasBitDifficulty()) {
+            flags |= BIT_DIFFICULTY;
+        }
+        if (block.getMerkleRoot() != null) {
+            flags |= MERKLE_ROOT;
+        }
+        out.write(VERSION);
+        out.write(flags);
+        writeVarLong(out, block.getIndex());
+        writeVarLong(out, block.getTimestamp().getTime());
+        writeVarLong(out, block.getTimestamp().getNanos() % 1_000_000);
+        if (rawHash != null) {
+            out.write(rawHash, 0, rawHash.length);
+        } else if ((flags & PREVIOUS_HASH_MASK) == STRING_PREVIOUS_HASH) {
+            writeBytes(out, previousHash.getBytes(StandardCharsets.UTF_8));
+        }
+        if (block.hasLongNonce()) {
+            writeVarLong(out, block.getNonceLong());
+        } else {
+            writeBytes(out, block.getNonce().toByteArray());
+        }
+        writeVarLong(out, block.hasBitDifficulty() ? block.getDifficultyBits() : block.getDifficulty());
+        writeBytes(out, data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a block.
+     *
+     * @param bytes The encoded bytes.
+     * @return The block.
+     * @throws IllegalArgumentException if the bytes are not an encoded block.
+     */
+    public static Block decode(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        Block block = read(in);
+        if (in.hasRemaining()) {
+            throw new IllegalArgumentException(in.remaining() + " unexpected bytes after the encoded block.");
+        }
+        return block;
+    }
+
+    /**
+     * Reads an encoded block from a buffer, leaving the buffer after it.
+     *
+     * @param in The buffer.
+     * @return The block.
+     * @throws IllegalArgumentException if the bytes are not an encoded block.
+     */
+    static Block read(ByteBuffer in) {
+        try {
+            int version = in.get() & 0xff;
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported block encoding version " + version + ".");
+            }
+            int flags = in.get() & 0xff;
+            int index = (int) readVarLong(in);
+            long millis = readVarLong(in);
+            int subMillisNanos = (int) readVarLong(in);
+            Timestamp timestamp = new Timestamp(millis);
+            timestamp.setNanos(timestamp.getNanos() + subMillisNanos);
+
+            String previousHash;
+            switch (flags & PREVIOUS_HASH_MASK) {
+                case EMPTY_PREVIOUS_HASH:
+                    previousHash = "";
+                    break;
+                case RAW_PREVIOUS_HASH:
+                    byte[] rawHash = new byte[32];
+                    in.get(rawHash);
+                    previousHash = BlockHasher.toHex(rawHash);
+                    break;
+                case STRING_PREVIOUS_HASH:
+                    previousHash = new String(readBytes(in), StandardCharsets.UTF_8);
+                    break;
+                case NULL_PREVIOUS_HASH:
+                    previousHash = null;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown previous hash form in flags " + flags + ".");
+            }
+            long nonce = 0;
+            BigInteger bigNonce = null;
+            if ((flags & BIG_NONCE) != 0) {
+                bigNonce = new BigInteger(readBytes(in));
+            } else {
+                nonce = readVarLong(in);
+            }
+            int difficulty = (int) readVarLong(in);
+            String data = new String(readBytes(in), StandardCharsets.UTF_8);
+
+            Block block = new Block(index, timestamp, data, difficulty);
+            if ((flags & BIT_DIFFICULTY) != 0) {
+                block.setDifficultyBits(difficulty);
+            }
+            if ((flags & MERKLE_ROOT) != 0) {
+                block.commitToTransactions();
+            }
+            block.setPreviousHash(previousHash);
+            if (bigNonce != null) {
+                block.setNonce(bigNonce);
+            } else {
+                block.setNonce(nonce);
+            }
+            return block;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Encoded block is truncated.", e);
+        }
+    }
+
+    /**
+     * Writes a chain of blocks: a varint count, then each block as a varint length and bytes.
+     *
+     * @param blocks The blocks, in chain order.
+     * @param out    The stream to write to.
+     * @throws IOException              if the stream cannot be written.
+     * @throws IllegalArgumentException if a block has no data.
+     */
+    public static void writeChain(List<Block> blocks, OutputStream out) throws IOException {
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        writeVarLong(record, blocks.size());
+        out.write(record.toByteArray());
+        for (Block block : blocks) {
+            record.reset();
+            write(block, record);
+            ByteArrayOutputStream length = new ByteArrayOutputStream(5);
+            writeVarLong(length, record.size());
+            length.writeTo(out);
+            record.writeTo(out);
+        }
+    }
+
+    /**
+     * Reads a chain of blocks written by writeChain().
+     *
+     * @param bytes The encoded chain.
+     * @return The blocks, in chain order.
+     * @throws IllegalArgumentException if the bytes are not an encoded chain.
+     */
+    public static List<Block> readChain(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        try {
+            int count = (int) readVarLong(in);
+            List<Block> blocks = new ArrayList<>(Math.min(count, 1 << 16));
+            for (int i = 0; i < count; i++) {
+                blocks.add(decode(readBytes(in)));
+            }
+            return blocks;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Encoded chain is truncated.", e);
+        }
+    }
+
+    /**
+     * Writes an unsigned LEB128 varint. Negative values take ten bytes.
+     */
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Reads an unsigned LEB128 varint.
+     */
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint is longer than ten bytes.");
+    }
+
+    /**
+     * Writes a varint length followed by the bytes.
+     */
+    private static void writeBytes(ByteArrayOutputStream out, byte[] bytes) {
+        writeVarLong(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Reads bytes written by writeBytes().
+     */
+    private static byte[] readBytes(ByteBuffer in) {
+        long length = readVarLong(in);
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalArgumentException("Length " + length + " runs past the end of the encoded bytes.");
+        }
+        byte[] bytes = new byte[(int) length];
+        in.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Returns the 32 raw bytes of a 64-digit lower-case hex hash, or null for anything else.
+     * Upper-case hex is left as a string so that it decodes to exactly the same text.
+     */
+    static byte[] rawHash(String hash) {
+        if (hash == null || hash.length() != 64) {
+            return null;
+        }
+        byte[] raw = new byte[32];
+        for (int i = 0; i < 32; i++) {
+            int high = hexDigit(hash.charAt(2 * i));
+            int low = hexDigit(hash.charAt(2 * i + 1));
+            if (high < 0 || low < 0) {
+                return null;
+            }
+            raw[i] = (byte) (high << 4 | low);
+        }
+        return raw;
+    }
+
+    /**
+     * Returns the value of a lower-case hex digit, or -1 for any other character.
+     */
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        return c >= 'a' && c <= 'f' ? c - 'a' + 10 : -1;
+    }
+}
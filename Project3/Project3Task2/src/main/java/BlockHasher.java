@@ -0,0 +1,375 @@
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+
+/**
+ * The BlockHasher class is the mining fast path for a single Block.
+ *
+ * Block.calculateHash() builds a fresh String for every attempt, looks up a new MessageDigest
+ * and hex-encodes the result, which is several allocations per hash. A BlockHasher instead
+ * encodes the unchanging part of the block header once, keeps one digest and one output
+ * buffer, and for each candidate nonce only rewrites the nonce digits in place. The leading
+ * zero check is done on the raw digest bytes, and the hex string is only built for the
+ * winning hash. The bytes hashed are exactly those of Block.calculateHash(), so the hash
+ * strings are identical.
+ *
+ * When the fixed prefix is long (for example a block carrying a lot of transaction data),
+ * re-processing it for every nonce dominates the cost. In that case the hasher feeds the
+ * prefix into a digest once, keeps that "midstate", and clones it for each nonce so only the
+ * trailing nonce and difficulty bytes are hashed per attempt. The main method compares both
+ * paths against Block.calculateHash() for short and long data.
+ *
+ * A BlockHasher holds a snapshot of the block's header and is not thread-safe; each mining
+ * thread uses its own instance.
+ *
+ * Author: Vishakha Pathak (vmpathak@andrew.cmu.edu)
+ * Last Modified: 10/18/2026
+ */
+public class BlockHasher {
+    /**
+     * Lower-case hexadecimal digits used when encoding hashes.
+     */
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * The maximum number of decimal digits in a non-negative long.
+     */
+    private static final int MAX_NONCE_DIGITS = 19;
+
+    /**
+     * The prefix length, in bytes, from which a cached midstate is used. Below one SHA-256
+     * block (64 bytes) there is nothing to save; from there on, cloning the digest was faster
+     * than re-hashing the prefix in every measurement of the main method.
+     */
+    static final int MIDSTATE_MIN_PREFIX = 64;
+
+    /**
+     * One SHA-256 digest per thread for callers that hash whole strings.
+     */
+    private static final ThreadLocal<MessageDigest> THREAD_DIGEST = ThreadLocal.withInitial(BlockHasher::newDigest);
+
+    /**
+     * The digest reused for every attempt.
+     */
+    private final MessageDigest digest;
+
+    /**
+     * A digest that has already absorbed the fixed prefix, or null when the prefix is short
+     * or the digest implementation cannot be cloned.
+     */
+    private final MessageDigest midstate;
+
+    /**
+     * The header bytes: the fixed prefix, then the nonce digits, then the fixed suffix.
+     */
+    private final byte[] buffer;
+
+    /**
+     * The number of fixed prefix bytes at the start of the buffer.
+     */
+    private final int prefixLength;
+
+    /**
+     * The fixed suffix bytes that follow the nonce.
+     */
+    private final byte[] suffix;
+
+    /**
+     * The number of leading zero bits required.
+     */
+    private final int difficultyBits;
+
+    /**
+     * The raw digest of the most recent attempt.
+     */
+    private final byte[] hash = new byte[32];
+
+    /**
+     * Constructs a hasher for the block's current header.
+     *
+     * @param block The block to hash. Later changes to the block are not seen by this hasher.
+     */
+    public BlockHasher(Block block) {
+        this(block, true);
+    }
+
+    /**
+     * Constructs a hasher for the block's current header.
+     *
+     * @param block       The block to hash. Later changes to the block are not seen by this hasher.
+     * @param useMidstate Whether a cached prefix midstate may be used for long prefixes.
+     */
+    BlockHasher(Block block, boolean useMidstate) {
+        this(block, useMidstate, null);
+    }
+
+    /**
+     * Constructs a hasher for the block's current header, starting from a digest that has
+     * already absorbed the block's index, timestamp and data (see headState()). Only the
+     * previous hash is added to it, which lets a repair precompute the expensive part of the
+     * midstate before the previous block's final hash is known.
+     *
+     * @param block     The block to hash. Later changes to the block are not seen by this hasher.
+     * @param headState The digest returned by headState(block), or null to compute everything here.
+     */
+    BlockHasher(Block block, MessageDigest headState) {
+        this(block, true, headState);
+    }
+
+    /**
+     * Constructs a hasher for the block's current header.
+     *
+     * @param block       The block to hash.
+     * @param useMidstate Whether a cached prefix midstate may be used for long prefixes.
+     * @param headState   A digest that has absorbed the block's head, or null.
+     */
+    private BlockHasher(Block block, boolean useMidstate, MessageDigest headState) {
+        byte[] prefix = block.hashPrefix().getBytes(StandardCharsets.UTF_8);
+        this.suffix = block.hashSuffix().getBytes(StandardCharsets.UTF_8);
+        this.prefixLength = prefix.length;
+        this.buffer = new byte[prefix.length + MAX_NONCE_DIGITS + suffix.length];
+        System.arraycopy(prefix, 0, buffer, 0, prefix.length);
+        this.difficultyBits = block.getDifficultyBits();
+        this.digest = newDigest();
+        if (!useMidstate || prefix.length < MIDSTATE_MIN_PREFIX) {
+            this.midstate = null;
+        } else if (headState != null) {
+            this.midstate = extendMidstate(headState, block.getPreviousHash());
+        } else {
+            this.midstate = prefixMidstate(prefix);
+        }
+    }
+
+    /**
+     * Creates a digest that has absorbed the block's index, timestamp and data: everything in
+     * the hashed input that comes before the previous hash.
+     *
+     * @param block The block.
+     * @return The digest, or null if the digest implementation is not cloneable.
+     */
+    static MessageDigest headState(Block block) {
+        return prefixMidstate(block.hashHead().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Clones a head state and adds the previous hash to it, giving the full prefix midstate.
+     *
+     * @param headState    The digest returned by headState().
+     * @param previousHash The block's previous hash.
+     * @return The prefix midstate, or null if the digest cannot be cloned.
+     */
+    private static MessageDigest extendMidstate(MessageDigest headState, String previousHash) {
+        try {
+            MessageDigest state = (MessageDigest) headState.clone();
+            state.update(previousHash.getBytes(StandardCharsets.UTF_8));
+            return state;
+        } catch (CloneNotSupportedException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates a digest that has absorbed the given prefix and can be cloned.
+     *
+     * @param prefix The fixed prefix bytes.
+     * @return The midstate digest, or null if the digest implementation is not cloneable.
+     */
+    private static MessageDigest prefixMidstate(byte[] prefix) {
+        MessageDigest state = newDigest();
+        state.update(prefix);
+        try {
+            state.clone();
+            return state;
+        } catch (CloneNotSupportedException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns whether this hasher clones a cached prefix midstate for each nonce.
+     *
+     * @return true if the midstate path is in use.
+     */
+    public boolean usesMidstate() {
+        return midstate != null;
+    }
+
+    /**
+     * Hashes the header with the given nonce and checks it against the difficulty.
+     *
+     * @param nonce The candidate nonce; must not be negative.
+     * @return true if the resulting hash has the required number of leading zeros.
+     */
+    public boolean tryNonce(long nonce) {
+        int length = writeNonce(nonce);
+        try {
+            if (midstate != null) {
+                MessageDigest attempt = (MessageDigest) midstate.clone();
+                attempt.update(buffer, prefixLength, length - prefixLength);
+                attempt.digest(hash, 0, hash.length);
+            } else {
+                digest.update(buffer, 0, length);
+                digest.digest(hash, 0, hash.length);
+            }
+        } catch (DigestException | CloneNotSupportedException e) {
+            throw new RuntimeException(e);
+        }
+        return hasLeadingZeroBits(hash, difficultyBits);
+    }
+
+    /**
+     * Returns the hexadecimal form of the hash computed by the most recent tryNonce() call.
+     *
+     * @return The hash as a hexadecimal string.
+     */
+    public String hashHex() {
+        return toHex(hash);
+    }
+
+    /**
+     * Writes the decimal digits of the nonce followed by the suffix into the buffer.
+     *
+     * @param nonce The nonce to write.
+     * @return The total number of header bytes.
+     */
+    private int writeNonce(long nonce) {
+        int digits = 1;
+        for (long rest = nonce / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        int position = prefixLength + digits;
+        long rest = nonce;
+        do {
+            buffer[--position] = (byte) ('0' + (rest % 10));
+            rest /= 10;
+        } while (rest != 0);
+        System.arraycopy(suffix, 0, buffer, prefixLength + digits, suffix.length);
+        return prefixLength + digits + suffix.length;
+    }
+
+    /**
+     * Checks whether a raw digest starts with the given number of zero hex digits.
+     *
+     * @param hash       The raw digest bytes.
+     * @param difficulty The number of leading zero hex digits required.
+     * @return true if the digest meets the difficulty.
+     */
+    public static boolean hasLeadingZeros(byte[] hash, int difficulty) {
+        return hasLeadingZeroBits(hash, difficulty * 4);
+    }
+
+    /**
+     * Checks whether a raw digest starts with the given number of zero bits, comparing whole
+     * bytes and then masking the last partial byte.
+     *
+     * @param hash The raw digest bytes.
+     * @param bits The number of leading zero bits required.
+     * @return true if the digest meets the difficulty.
+     */
+    public static boolean hasLeadingZeroBits(byte[] hash, int bits) {
+        int fullBytes = bits / 8;
+        for (int i = 0; i < fullBytes; i++) {
+            if (hash[i] != 0) {
+                return false;
+            }
+        }
+        int remainingBits = bits % 8;
+        return remainingBits == 0 || (hash[fullBytes] & (0xff << (8 - remainingBits)) & 0xff) == 0;
+    }
+
+    /**
+     * Computes the SHA-256 hash of a string as lower-case hexadecimal, reusing a per-thread digest.
+     *
+     * @param input The string to hash, encoded as UTF-8.
+     * @return The hexadecimal hash.
+     */
+    public static String sha256Hex(String input) {
+        return toHex(THREAD_DIGEST.get().digest(input.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Converts bytes into a lower-case hexadecimal string.
+     *
+     * @param bytes The bytes to encode.
+     * @return The hexadecimal string.
+     */
+    public static String toHex(byte[] bytes) {
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            out[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            out[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(out);
+    }
+
+    /**
+     * Creates a new SHA-256 digest.
+     *
+     * @return The digest.
+     * @throws RuntimeException if the SHA-256 algorithm is not available.
+     */
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // This exception should not occur for SHA-256. Wrap it in a runtime exception.
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Compares Block.calculateHash(), the plain BlockHasher path and the midstate path on
+     * blocks with short and long transaction data.
+     *
+     * @param args Command line arguments: optional number of hashes per measurement.
+     */
+    public static void main(String[] args) {
+        int attempts = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        Timestamp timestamp = new Timestamp(System.currentTimeMillis());
+        String previousHash = sha256Hex("previous");
+        for (int dataLength : new int[]{16, 256, 1024, 4096}) {
+            Block block = new Block(1, timestamp, "x".repeat(dataLength), 64);
+            block.setPreviousHash(previousHash);
+            // The first round warms up the JIT; the second is reported.
+            for (int round = 0; round < 2; round++) {
+                long legacy = time(() -> {
+                    for (int n = 0; n < attempts; n++) {
+                        block.calculateHash(BigInteger.valueOf(n));
+                    }
+                });
+                BlockHasher plain = new BlockHasher(block, false);
+                long direct = time(() -> {
+                    for (int n = 0; n < attempts; n++) {
+                        plain.tryNonce(n);
+                    }
+                });
+                BlockHasher midstate = new BlockHasher(block, true);
+                long cloned = time(() -> {
+                    for (int n = 0; n < attempts; n++) {
+                        midstate.tryNonce(n);
+                    }
+                });
+                if (round == 1) {
+                    System.out.printf("data=%5d bytes  calculateHash %7.0f ms  reused digest %7.0f ms (%.1fx)  midstate %7.0f ms (%.1fx)%n",
+                            dataLength, legacy / 1e6, direct / 1e6, (double) legacy / direct,
+                            cloned / 1e6, (double) legacy / cloned);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the task once and returns how long it took.
+     *
+     * @param task The task to time.
+     * @return The elapsed time in nanoseconds.
+     */
+    private static long time(Runnable task) {
+        long start = System.nanoTime();
+        task.run();
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,296 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * The BlockLog class is an append-only, on-disk record of a BlockChain's blocks.
+ *
+ * The segment file starts with a header, then every block written to the log becomes one
+ * record:
+ *
+ *   header: [int MAGIC][int BlockCodec version of the records]
+ *   record: [int payload length][payload bytes][int CRC-32 of the payload]
+ *
+ * The payload is the block's BlockCodec encoding. A log without the header, or written with
+ * another codec version, is refused when it is opened rather than read or truncated.
+ *
+ * Blocks are never rewritten in place. When a block already in the log changes (a corrupted
+ * block, or a block re-mined by a repair), a new record for the same index is appended, and on
+ * recovery the last record for each index wins. Writes go to the operating system straight
+ * away, but are only forced to the disk every syncEvery records, by an append made
+ * syncIntervalMillis or more after the last force, or when sync() is called. The log has no
+ * thread of its own, so the last records before a quiet spell wait for the next sync();
+ * BlockChain calls it every syncIntervalMillis to bound that wait. A crash can therefore lose the last
+ * few unsynced records, and can leave a partly written record at the end of the file. Recovery
+ * stops at the first record that is incomplete or fails its checksum and truncates the file
+ * there. A record that passes its checksum but cannot be decoded, or does not follow the
+ * blocks before it, was not torn by a crash, so recovery fails instead of discarding it and
+ * everything after it.
+ *
+ * Author: Vishakha Pathak (vmpathak@andrew.cmu.edu)
+ * Last Modified: 10/18/2026
+ */
+public class BlockLog implements Closeable {
+    /**
+     * The size of the length and checksum fields around each payload.
+     */
+    private static final int RECORD_OVERHEAD = 8;
+
+    /**
+     * The first four bytes of every block log, "BLKL".
+     */
+    static final int MAGIC = 0x424C4B4C;
+
+    /**
+     * The size of the header: the magic number and the records' BlockCodec version.
+     */
+    static final int HEADER_BYTES = 8;
+
+    /**
+     * The largest payload recovery will accept; anything bigger is treated as a torn record.
+     */
+    private static final int MAX_PAYLOAD = 64 * 1024 * 1024;
+
+    /**
+     * The path of the segment file, for messages.
+     */
+    private final Path file;
+
+    /**
+     * The segment file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The number of records written between two forces to the disk.
+     */
+    private final int syncEvery;
+
+    /**
+     * The time, in milliseconds, after the last force from which an append forces the log again.
+     */
+    private final long syncIntervalMillis;
+
+    /**
+     * The number of records written since the last force.
+     */
+    private int unsynced;
+
+    /**
+     * When the log was last forced to the disk.
+     */
+    private long lastSyncMillis;
+
+    /**
+     * Opens a log, creating the file if it does not exist.
+     *
+     * @param file               The segment file.
+     * @param syncEvery          The number of records written between two forces to the disk.
+     * @param syncIntervalMillis The time after the last force from which an append forces the log.
+     * @throws IOException if the file cannot be opened.
+     */
+    public BlockLog(Path file, int syncEvery, long syncIntervalMillis) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.syncEvery = Math.max(1, syncEvery);
+        this.syncIntervalMillis = syncIntervalMillis;
+        this.lastSyncMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Reads every intact record and returns the resulting chain of blocks, then truncates any
+     * torn or corrupt tail so that new records follow the last good one. A new log gets its
+     * header.
+     *
+     * @return The recovered blocks, in chain order; empty for a new log.
+     * @throws IOException if the file cannot be read, is not a block log of the current
+     *                     version, or holds a record that is intact but unreadable; the file is
+     *                     then left as it is.
+     */
+    public List<Block> recover() throws IOException {
+        List<Block> blocks = new ArrayList<>();
+        long size = channel.size();
+        if (!readHeader(size)) {
+            channel.position(HEADER_BYTES);
+            return blocks;
+        }
+        long position = HEADER_BYTES;
+        ByteBuffer header = ByteBuffer.allocate(4);
+        while (position + RECORD_OVERHEAD <= size) {
+            header.clear();
+            readFully(header, position);
+            int length = header.getInt(0);
+            if (length < 0 || length > MAX_PAYLOAD || position + RECORD_OVERHEAD + length > size) {
+                break;
+            }
+            ByteBuffer record = ByteBuffer.allocate(length + 4);
+            readFully(record, position + 4);
+            byte[] payload = new byte[length];
+            record.flip();
+            record.get(payload);
+            int checksum = record.getInt();
+            if (checksum != crc(payload)) {
+                break;
+            }
+            // The record was written whole, so a crash cannot explain anything wrong with it
+            Block block;
+            try {
+                block = decodeBlock(payload);
+            } catch (IOException e) {
+                throw new IOException("Block log " + file + ": the record at byte " + position
+                        + " is intact but cannot be decoded; the log was left unchanged.", e);
+            }
+            if (block.getIndex() < blocks.size()) {
+                blocks.set(block.getIndex(), block);
+            } else if (block.getIndex() == blocks.size()) {
+                blocks.add(block);
+            } else {
+                throw new IOException("Block log " + file + ": the record at byte " + position + " holds block "
+                        + block.getIndex() + " after only " + blocks.size() + " blocks; the log was left unchanged.");
+            }
+            position += RECORD_OVERHEAD + length;
+        }
+        if (position < size) {
+            System.out.println("Block log: discarding " + (size - position) + " bytes of torn or corrupt records.");
+            channel.truncate(position);
+            channel.force(true);
+        }
+        channel.position(position);
+        return blocks;
+    }
+
+    /**
+     * Checks the header of an existing log, or writes the header of a new one.
+     *
+     * @param size The size of the file.
+     * @return true if the log already had its header, so records may follow it.
+     * @throws IOException if the file is not a block log, or its records are of another version.
+     */
+    private boolean readHeader(long size) throws IOException {
+        ByteBuffer expected = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(BlockCodec.VERSION).flip();
+        ByteBuffer found = ByteBuffer.allocate((int) Math.min(size, HEADER_BYTES));
+        readFully(found, 0);
+        found.flip();
+        if (size < HEADER_BYTES && found.equals(expected.slice(0, found.remaining()))) {
+            // A new log, or one whose header was torn as it was created
+            channel.truncate(0);
+            while (expected.hasRemaining()) {
+                channel.write(expected, expected.position());
+            }
+            channel.force(true);
+            return false;
+        }
+        if (size < HEADER_BYTES || found.getInt(0) != MAGIC) {
+            throw new IOException("Block log " + file + " does not start with a block log header; it may have been"
+                    + " written by an older version. It was left unchanged.");
+        }
+        if (found.getInt(4) != BlockCodec.VERSION) {
+            throw new IOException("Block log " + file + " holds records of BlockCodec version " + found.getInt(4)
+                    + ", but only version " + BlockCodec.VERSION + " can be read. It was left unchanged.");
+        }
+        return true;
+    }
+
+    /**
+     * Fills the buffer from the file, starting at the given position.
+     *
+     * @param buffer   The buffer to fill.
+     * @param position The file position to read from.
+     * @throws IOException if the file cannot be read or ends early.
+     */
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of block log.");
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Appends a record for the block, forcing the log to the disk if a sync is due.
+     *
+     * @param block The block to record.
+     * @throws IOException if the record cannot be written.
+     */
+    public void append(Block block) throws IOException {
+        byte[] payload = encodeBlock(block);
+        ByteBuffer record = ByteBuffer.allocate(payload.length + RECORD_OVERHEAD);
+        record.putInt(payload.length).put(payload).putInt(crc(payload)).flip();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+        unsynced++;
+        if (unsynced >= syncEvery || System.currentTimeMillis() - lastSyncMillis >= syncIntervalMillis) {
+            sync();
+        }
+    }
+
+    /**
+     * Forces every record written so far to the disk.
+     *
+     * @throws IOException if the log cannot be forced.
+     */
+    public void sync() throws IOException {
+        if (unsynced > 0) {
+            channel.force(false);
+            unsynced = 0;
+        }
+        lastSyncMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Forces outstanding records to the disk and closes the log.
+     *
+     * @throws IOException if the log cannot be forced or closed.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Encodes a block as a record payload.
+     *
+     * @param block The block.
+     * @return The payload bytes.
+     */
+    static byte[] encodeBlock(Block block) {
+        return BlockCodec.encode(block);
+    }
+
+    /**
+     * Decodes a record payload back into a block.
+     *
+     * @param payload The payload bytes.
+     * @return The block.
+     * @throws IOException if the payload is malformed.
+     */
+    static Block decodeBlock(byte[] payload) throws IOException {
+        try {
+            return BlockCodec.decode(payload);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Malformed block record.", e);
+        }
+    }
+
+    /**
+     * Computes the CRC-32 checksum of a payload.
+     */
+    private static int crc(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,297 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The BlockProducer class turns the transactions waiting in a Mempool into blocks, so that one
+ * proof-of-work covers many transactions instead of one.
+ *
+ * A single background thread waits for a transaction, collects up to maxTransactions of them
+ * or whatever arrives within maxWaitMillis of the first, and mines them as one block built
+ * with Block.ofTransactions(), whose hash covers the batch's Merkle root. Transactions asking
+ * for different difficulties go into separate blocks, mined easiest first, so that one hard
+ * request does not hold back the easier ones collected with it. Once a block is on the chain, every
+ * submitter's future is completed with a TransactionReceipt carrying its Merkle proof; if
+ * mining fails or times out, or building the block throws, they all fail, the chain is
+ * unchanged, and the producer goes on with the next batch.
+ *
+ * The main method compares one block per transaction with batched blocks under concurrent
+ * submitters.
+ *
+ * Author: Vishakha Pathak (vmpathak@andrew.cmu.edu)
+ * Last Modified: 10/18/2026
+ */
+public class BlockProducer {
+    /**
+     * The chain blocks are added to.
+     */
+    private final BlockChain chain;
+
+    /**
+     * The pool transactions are taken from.
+     */
+    private final Mempool mempool;
+
+    /**
+     * The most transactions in one block.
+     */
+    private final int maxTransactions;
+
+    /**
+     * How long to keep collecting transactions after the first one, in milliseconds.
+     */
+    private final long maxWaitMillis;
+
+    /**
+     * The time allowed for mining one block, in milliseconds, or 0 for no limit.
+     */
+    private final long miningTimeoutMillis;
+
+    /**
+     * The number of blocks produced.
+     */
+    private final AtomicLong blocksProduced = new AtomicLong();
+
+    /**
+     * The number of transactions included in those blocks.
+     */
+    private final AtomicLong transactionsIncluded = new AtomicLong();
+
+    /**
+     * The producer thread, or null when not started.
+     */
+    private Thread thread;
+
+    /**
+     * Constructs a producer; call start() to begin producing blocks.
+     *
+     * @param chain               The chain to add blocks to.
+     * @param mempool             The pool to take transactions from.
+     * @param maxTransactions     The most transactions in one block; at least 1.
+     * @param maxWaitMillis       How long to keep collecting after the first transaction.
+     * @param miningTimeoutMillis The time allowed for mining one block, or 0 for no limit.
+     */
+    public BlockProducer(BlockChain chain, Mempool mempool, int maxTransactions, long maxWaitMillis,
+                         long miningTimeoutMillis) {
+        this.chain = chain;
+        this.mempool = mempool;
+        this.maxTransactions = Math.max(1, maxTransactions);
+        this.maxWaitMillis = maxWaitMillis;
+        this.miningTimeoutMillis = miningTimeoutMillis;
+    }
+
+    /**
+     * Starts the producer thread, if it is not running already.
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        thread = new Thread(this::run, "block-producer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the producer thread and fails the transactions still waiting in the pool.
+     */
+    public synchronized void shutdown() {
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+        for (Mempool.PendingTransaction entry : mempool.drain()) {
+            entry.receipt.completeExceptionally(new CancellationException("The block producer was shut down."));
+        }
+    }
+
+    /**
+     * Produces blocks until interrupted. A batch that fails unexpectedly is failed on its own;
+     * the thread goes on with the next one.
+     */
+    private void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                List<Mempool.PendingTransaction> batch = mempool.takeBatch(maxTransactions, maxWaitMillis);
+                try {
+                    produce(batch);
+                } catch (RuntimeException e) {
+                    fail(batch, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            // Shutting down.
+        }
+    }
+
+    /**
+     * Mines one batch into blocks, one for each difficulty asked for, and completes its
+     * submitters' futures.
+     *
+     * @param batch The transactions, oldest first.
+     * @throws InterruptedException if interrupted while mining; the rest of the batch is then failed.
+     */
+    void produce(List<Mempool.PendingTransaction> batch) throws InterruptedException {
+        TreeMap<Integer, List<Mempool.PendingTransaction>> byDifficulty = new TreeMap<>();
+        for (Mempool.PendingTransaction entry : batch) {
+            byDifficulty.computeIfAbsent(entry.difficultyBits, bits -> new ArrayList<>()).add(entry);
+        }
+        for (Map.Entry<Integer, List<Mempool.PendingTransaction>> group : byDifficulty.entrySet()) {
+            try {
+                produce(group.getValue(), group.getKey());
+            } catch (InterruptedException e) {
+                fail(batch, new CancellationException("The block producer was shut down."));
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Mines transactions that asked for the same difficulty into a block and completes their
+     * submitters' futures.
+     *
+     * @param batch The transactions, oldest first.
+     * @param bits  The difficulty they asked for, in bits.
+     * @throws InterruptedException if interrupted while mining; the transactions are then failed.
+     */
+    private void produce(List<Mempool.PendingTransaction> batch, int bits) throws InterruptedException {
+        List<String> transactions = new ArrayList<>(batch.size());
+        for (Mempool.PendingTransaction entry : batch) {
+            transactions.add(entry.transaction);
+        }
+        Block block = Block.ofTransactions(chain.getChainSize(), new Timestamp(System.currentTimeMillis()),
+                transactions, bits / 4);
+        if (bits % 4 != 0) {
+            block.setDifficultyBits(bits);
+        }
+        MiningJob job = chain.addBlockAsync(block, miningTimeoutMillis, null);
+        try {
+            job.get();
+        } catch (ExecutionException e) {
+            fail(batch, e.getCause());
+            return;
+        } catch (InterruptedException e) {
+            job.cancel();
+            fail(batch, new CancellationException("The block producer was shut down."));
+            throw e;
+        }
+        blocksProduced.incrementAndGet();
+        transactionsIncluded.addAndGet(batch.size());
+        String blockHash = block.calculateHash();
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).receipt.complete(new TransactionReceipt(block.getIndex(), i, batch.size(),
+                    block.getMerkleRoot(), MerkleTree.proof(transactions, i), blockHash, block.getDifficultyBits()));
+        }
+    }
+
+    /**
+     * Fails every transaction of a batch that could not be mined.
+     *
+     * @param batch The transactions.
+     * @param cause Why they were not mined.
+     */
+    private static void fail(List<Mempool.PendingTransaction> batch, Throwable cause) {
+        for (Mempool.PendingTransaction entry : batch) {
+            entry.receipt.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * Returns the number of blocks produced.
+     *
+     * @return The block count.
+     */
+    public long getBlocksProduced() {
+        return blocksProduced.get();
+    }
+
+    /**
+     * Returns the number of transactions included in the blocks produced.
+     *
+     * @return The transaction count.
+     */
+    public long getTransactionsIncluded() {
+        return transactionsIncluded.get();
+    }
+
+    /**
+     * Returns a one-line summary of the producer's work.
+     *
+     * @return A string describing the pool and the blocks produced.
+     */
+    @Override
+    public String toString() {
+        return mempool.size() + " transactions waiting, " + transactionsIncluded.get() + " included in "
+                + blocksProduced.get() + " blocks (up to " + maxTransactions + " per block, " + maxWaitMillis + " ms wait)";
+    }
+
+    /**
+     * Submits transactions from several threads at once, first with one transaction per block
+     * and then in batches, and reports the throughput of each, checking every receipt's Merkle
+     * proof and the chain.
+     *
+     * @param args Command line arguments: optionally the number of transactions (default 400),
+     *             the difficulty in hex digits (default 3) and the batch size (default 100).
+     * @throws Exception if a transaction could not be mined or the run was interrupted.
+     */
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        int difficulty = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        // The chain reports every block it adds; only the summaries are printed.
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        for (int size : new int[]{1, batchSize}) {
+            BlockChain chain = new BlockChain();
+            Mempool mempool = new Mempool(count);
+            BlockProducer producer = new BlockProducer(chain, mempool, size, 50, 0);
+            List<CompletableFuture<TransactionReceipt>> receipts = new ArrayList<>();
+            long start = System.nanoTime();
+            producer.start();
+            List<Thread> submitters = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int submitter = t;
+                Thread thread = new Thread(() -> {
+                    for (int i = submitter; i < count; i += 8) {
+                        CompletableFuture<TransactionReceipt> receipt = mempool.submit("payment " + i, difficulty * 4);
+                        synchronized (receipts) {
+                            receipts.add(receipt);
+                        }
+                    }
+                });
+                submitters.add(thread);
+                thread.start();
+            }
+            for (Thread thread : submitters) {
+                thread.join();
+            }
+            int verified = 0;
+            for (CompletableFuture<TransactionReceipt> future : receipts) {
+                TransactionReceipt receipt = future.get();
+                Block block = chain.getBlock(receipt.getBlockIndex());
+                String transaction = block.getTransactions().get(receipt.getPosition());
+                if (MerkleTree.verify(transaction, receipt.getProof(), block.getMerkleRoot())) {
+                    verified++;
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            producer.shutdown();
+            console.printf("Up to %3d per block: %d transactions in %.2f s (%.0f/s), %s; %d proofs verified; chain %s%n",
+                    size, count, seconds, count / seconds, producer, verified, chain.isChainValid());
+            chain.close();
+        }
+    }
+}
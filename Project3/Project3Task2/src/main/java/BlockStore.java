@@ -0,0 +1,72 @@
+/**
+ * The BlockStore interface is the storage backend behind a BlockChain.
+ *
+ * A store holds the blocks of one chain, in index order. MemoryBlockStore keeps them as Java
+ * objects on the heap; MappedBlockStore keeps them in memory-mapped files and creates a Block
+ * object only when one is asked for, caching it while memory allows. Because of that, callers
+ * must not assume get() returns the same object twice: a changed block is written back with
+ * update().
+ *
+ * Author: Vishakha Pathak (vmpathak@andrew.cmu.edu)
+ * Last Modified: 10/18/2026
+ */
+public interface BlockStore {
+    /**
+     * Returns the number of blocks in the store.
+     *
+     * @return The number of blocks.
+     */
+    int size();
+
+    /**
+     * Returns the block at the given index.
+     *
+     * @param index The block's index.
+     * @return The block.
+     * @throws IndexOutOfBoundsException if there is no such block.
+     */
+    Block get(int index);
+
+    /**
+     * Returns the difficulty of the block at the given index, without necessarily creating
+     * a Block object for it.
+     *
+     * @param index The block's index.
+     * @return The block's difficulty.
+     */
+    int getDifficulty(int index);
+
+    /**
+     * Returns the difficulty of the block at the given index in bits, as Block.getDifficultyBits()
+     * does, without necessarily creating a Block object for it.
+     *
+     * @param index The block's index.
+     * @return The block's difficulty in bits.
+     */
+    int getDifficultyBits(int index);
+
+    /**
+     * Adds a block after the last one. The block's index must equal size().
+     *
+     * @param block The block to add.
+     */
+    void append(Block block);
+
+    /**
+     * Writes back a block obtained from get() after one of its fields changed.
+     *
+     * @param block The changed block; stored back at the index it was read from, even if the
+     *              change was to its index.
+     */
+    void update(Block block);
+
+    /**
+     * Forces any buffered changes to durable storage, if the store has any.
+     */
+    void sync();
+
+    /**
+     * Releases the resources held by the store.
+     */
+    void close();
+}
@@ -0,0 +1,294 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.sql.Timestamp;
+import java.util.Random;
+
+/**
+ * The DifficultyRetargeter class picks the difficulty of new blocks from how long recent
+ * blocks took to mine, so that blocks keep arriving at about a configured target interval
+ * instead of at whatever pace a hand-picked difficulty happens to give.
+ *
+ * Every block's mining time is recorded with the number of bits it was mined at. Over a
+ * sliding window of recent blocks, the work done (2^bits expected hashes per block) divided by
+ * the time taken estimates the hash rate; the next difficulty is the number of bits whose
+ * expected work at that rate is closest to the target interval. The estimate does not depend
+ * on the difficulties the window was mined at, so a change in load or in mining threads is
+ * followed within a window. Each adjustment moves by at most MAX_STEP_BITS, so a single
+ * unlucky block cannot swing the difficulty far, and the result stays within the configured
+ * bounds.
+ *
+ * Difficulty moves in whole bits (2x steps), but as it alternates between neighbouring bits
+ * the mean interval stays close to the target. BlockChain applies a retargeter to the blocks it mines
+ * once one is set with setRetargeter(). The main method simulates thousands of blocks under
+ * changing hash rates and then mines real blocks at a short target interval.
+ *
+ * Author: Vishakha Pathak (vmpathak@andrew.cmu.edu)
+ * Last Modified: 10/18/2026
+ */
+public class DifficultyRetargeter {
+    /**
+     * The default number of recent blocks the hash rate is estimated from.
+     */
+    static final int DEFAULT_WINDOW = 16;
+
+    /**
+     * The most the difficulty may change at one adjustment, in bits.
+     */
+    static final int MAX_STEP_BITS = 2;
+
+    /**
+     * The interval between blocks to aim for, in nanoseconds.
+     */
+    private final long targetIntervalNanos;
+
+    /**
+     * The lowest difficulty that will be chosen, in bits.
+     */
+    private final int minBits;
+
+    /**
+     * The highest difficulty that will be chosen, in bits.
+     */
+    private final int maxBits;
+
+    /**
+     * The difficulties of the recent blocks, in bits, as a ring buffer.
+     */
+    private final int[] windowBits;
+
+    /**
+     * The mining times of the recent blocks, in nanoseconds, parallel to windowBits.
+     */
+    private final long[] windowNanos;
+
+    /**
+     * The slot in the ring buffer the next block goes to.
+     */
+    private int nextSlot;
+
+    /**
+     * The number of slots of the ring buffer in use.
+     */
+    private int filled;
+
+    /**
+     * The difficulty the next block will be mined at, in bits.
+     */
+    private int currentBits;
+
+    /**
+     * The number of blocks recorded since the retargeter was created.
+     */
+    private long blocksRecorded;
+
+    /**
+     * The total mining time of all recorded blocks, in nanoseconds.
+     */
+    private long totalNanos;
+
+    /**
+     * The number of times the difficulty was changed.
+     */
+    private long adjustments;
+
+    /**
+     * Constructs a retargeter.
+     *
+     * @param targetIntervalMillis The interval between blocks to aim for, in milliseconds.
+     * @param window               The number of recent blocks to estimate the hash rate from.
+     * @param minBits              The lowest difficulty to choose, in bits; at least 1.
+     * @param maxBits              The highest difficulty to choose, in bits; at most 256.
+     * @param initialBits          The difficulty of the first block, in bits.
+     * @throws IllegalArgumentException if the arguments are out of range.
+     */
+    public DifficultyRetargeter(long targetIntervalMillis, int window, int minBits, int maxBits, int initialBits) {
+        if (targetIntervalMillis <= 0 || window < 1 || minBits < 1 || maxBits > 256 || minBits > maxBits) {
+            throw new IllegalArgumentException("Invalid retargeting settings: target " + targetIntervalMillis
+                    + " ms, window " + window + ", bits " + minBits + " to " + maxBits + ".");
+        }
+        this.targetIntervalNanos = targetIntervalMillis * 1_000_000L;
+        this.minBits = minBits;
+        this.maxBits = maxBits;
+        this.windowBits = new int[window];
+        this.windowNanos = new long[window];
+        this.currentBits = Math.max(minBits, Math.min(maxBits, initialBits));
+    }
+
+    /**
+     * Constructs a retargeter with the default window, difficulties from 1 to 64 bits, and a
+     * first difficulty of 8 bits (2 hex digits, as the genesis block uses).
+     *
+     * @param targetIntervalMillis The interval between blocks to aim for, in milliseconds.
+     */
+    public DifficultyRetargeter(long targetIntervalMillis) {
+        this(targetIntervalMillis, DEFAULT_WINDOW, 1, 64, 8);
+    }
+
+    /**
+     * Returns the difficulty the next block should be mined at.
+     *
+     * @return The difficulty in bits.
+     */
+    public synchronized int nextDifficultyBits() {
+        return currentBits;
+    }
+
+    /**
+     * Records how long a block took to mine and adjusts the difficulty for the next one.
+     *
+     * @param bits         The difficulty the block was mined at, in bits.
+     * @param elapsedNanos The time it took to mine, in nanoseconds.
+     */
+    public synchronized void recordBlock(int bits, long elapsedNanos) {
+        long nanos = Math.max(1, elapsedNanos);
+        windowBits[nextSlot] = bits;
+        windowNanos[nextSlot] = nanos;
+        nextSlot = (nextSlot + 1) % windowBits.length;
+        filled = Math.min(filled + 1, windowBits.length);
+        blocksRecorded++;
+        totalNanos += nanos;
+        retarget();
+    }
+
+    /**
+     * Sets the next difficulty from the hash rate estimated over the window.
+     */
+    private void retarget() {
+        double hashes = 0;
+        long nanos = 0;
+        for (int i = 0; i < filled; i++) {
+            hashes += Math.pow(2, windowBits[i]);
+            nanos += windowNanos[i];
+        }
+        double hashesPerTarget = hashes / nanos * targetIntervalNanos;
+        int idealBits = (int) Math.round(Math.log(Math.max(1, hashesPerTarget)) / Math.log(2));
+        int bits = Math.max(currentBits - MAX_STEP_BITS, Math.min(currentBits + MAX_STEP_BITS, idealBits));
+        bits = Math.max(minBits, Math.min(maxBits, bits));
+        if (bits != currentBits) {
+            currentBits = bits;
+            adjustments++;
+        }
+    }
+
+    /**
+     * Returns the interval between blocks being aimed for.
+     *
+     * @return The target interval, in milliseconds.
+     */
+    public long getTargetIntervalMillis() {
+        return targetIntervalNanos / 1_000_000L;
+    }
+
+    /**
+     * Returns the number of blocks recorded.
+     *
+     * @return The block count.
+     */
+    public synchronized long getBlocksRecorded() {
+        return blocksRecorded;
+    }
+
+    /**
+     * Returns the mean mining time of all recorded blocks.
+     *
+     * @return The mean interval in milliseconds, or 0 before the first block.
+     */
+    public synchronized double getMeanIntervalMillis() {
+        return blocksRecorded == 0 ? 0 : totalNanos / 1_000_000.0 / blocksRecorded;
+    }
+
+    /**
+     * Returns the mean mining time of the blocks in the window.
+     *
+     * @return The recent mean interval in milliseconds, or 0 before the first block.
+     */
+    public synchronized double getRecentIntervalMillis() {
+        long nanos = 0;
+        for (int i = 0; i < filled; i++) {
+            nanos += windowNanos[i];
+        }
+        return filled == 0 ? 0 : nanos / 1_000_000.0 / filled;
+    }
+
+    /**
+     * Returns the number of times the difficulty was changed.
+     *
+     * @return The adjustment count.
+     */
+    public synchronized long getAdjustments() {
+        return adjustments;
+    }
+
+    /**
+     * Returns a one-line summary of the actual against the target interval.
+     *
+     * @return A string describing the retargeting statistics.
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("target %d ms, recent mean %.1f ms over %d blocks, overall mean %.1f ms over %d blocks, "
+                        + "next difficulty %d bits, %d adjustments",
+                getTargetIntervalMillis(), getRecentIntervalMillis(), filled, getMeanIntervalMillis(), blocksRecorded,
+                currentBits, adjustments);
+    }
+
+    /**
+     * Simulates mining under a retargeter: each block's time is drawn from the exponential
+     * distribution proof-of-work follows, with mean 2^bits / hashesPerSecond.
+     *
+     * @param retargeter      The retargeter.
+     * @param hashesPerSecond The simulated hash rate.
+     * @param blocks          The number of blocks to simulate.
+     * @param random          The source of randomness.
+     * @return The mean simulated interval of these blocks, in milliseconds.
+     */
+    static double simulate(DifficultyRetargeter retargeter, double hashesPerSecond, int blocks, Random random) {
+        double totalMillis = 0;
+        for (int i = 0; i < blocks; i++) {
+            int bits = retargeter.nextDifficultyBits();
+            double seconds = -Math.log(1 - random.nextDouble()) * Math.pow(2, bits) / hashesPerSecond;
+            retargeter.recordBlock(bits, (long) (seconds * 1_000_000_000L));
+            totalMillis += seconds * 1000;
+        }
+        return totalMillis / blocks;
+    }
+
+    /**
+     * Simulates 8,000 blocks at a one-second target while the hash rate steps from 1 to 8
+     * million hashes per second and back down, then mines real blocks on a BlockChain with
+     * retargeting at a short target interval.
+     *
+     * @param args Command line arguments: optionally the number of real blocks (default 200)
+     *             and their target interval in milliseconds (default 20).
+     */
+    public static void main(String[] args) {
+        DifficultyRetargeter simulated = new DifficultyRetargeter(1000);
+        Random random = new Random(42);
+        double[] rates = {1_000_000, 8_000_000, 250_000, 2_000_000};
+        for (double rate : rates) {
+            double mean = simulate(simulated, rate, 2000, random);
+            System.out.printf("Simulated %,.0f hashes/second: mean interval %.0f ms over 2000 blocks, now %d bits%n",
+                    rate, mean, simulated.nextDifficultyBits());
+        }
+        System.out.println("Simulation: " + simulated);
+
+        int realBlocks = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        long realTarget = args.length > 1 ? Long.parseLong(args[1]) : 20;
+        BlockChain chain = new BlockChain();
+        DifficultyRetargeter retargeter = new DifficultyRetargeter(realTarget);
+        chain.setRetargeter(retargeter);
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            for (int i = 0; i < realBlocks; i++) {
+                chain.addBlock(new Block(chain.getChainSize(), new Timestamp(System.currentTimeMillis()),
+                        "transaction " + i, 1));
+            }
+        } finally {
+            System.setOut(console);
+        }
+        System.out.println("Mined " + realBlocks + " blocks: " + retargeter);
+        System.out.println("Chain verification: " + chain.isChainValid());
+        chain.close();
+    }
+}
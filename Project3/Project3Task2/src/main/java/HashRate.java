@@ -0,0 +1,108 @@
+/**
+ * The HashRate class holds the result of one hash-rate calibration by HashRateCalibrator:
+ * how many block hashes per second this machine manages on one thread and on all of them.
+ *
+ * Author: Vishakha Pathak (vmpathak@andrew.cmu.edu)
+ * Last Modified: 10/18/2026
+ */
+public class HashRate {
+    /**
+     * The hashes per second measured on a single thread.
+     */
+    private final long singleThreadHashesPerSecond;
+
+    /**
+     * The hashes per second measured across all threads together.
+     */
+    private final long multiThreadHashesPerSecond;
+
+    /**
+     * The number of threads used for the multi-threaded measurement.
+     */
+    private final int threads;
+
+    /**
+     * When the measurement was taken, in milliseconds since the epoch.
+     */
+    private final long measuredAtMillis;
+
+    /**
+     * Whether the result was read from the calibration cache rather than measured in this run.
+     */
+    private final boolean cached;
+
+    /**
+     * Constructs a calibration result.
+     *
+     * @param singleThreadHashesPerSecond The single-threaded hash rate.
+     * @param multiThreadHashesPerSecond  The combined multi-threaded hash rate.
+     * @param threads                     The number of threads in the multi-threaded measurement.
+     * @param measuredAtMillis            When the measurement was taken.
+     * @param cached                      Whether the result came from the cache.
+     */
+    public HashRate(long singleThreadHashesPerSecond, long multiThreadHashesPerSecond, int threads,
+                    long measuredAtMillis, boolean cached) {
+        this.singleThreadHashesPerSecond = singleThreadHashesPerSecond;
+        this.multiThreadHashesPerSecond = multiThreadHashesPerSecond;
+        this.threads = threads;
+        this.measuredAtMillis = measuredAtMillis;
+        this.cached = cached;
+    }
+
+    /**
+     * Returns the hashes per second measured on a single thread.
+     *
+     * @return The single-threaded hash rate.
+     */
+    public long getSingleThreadHashesPerSecond() {
+        return singleThreadHashesPerSecond;
+    }
+
+    /**
+     * Returns the hashes per second measured across all threads together.
+     *
+     * @return The combined multi-threaded hash rate.
+     */
+    public long getMultiThreadHashesPerSecond() {
+        return multiThreadHashesPerSecond;
+    }
+
+    /**
+     * Returns the number of threads used for the multi-threaded measurement.
+     *
+     * @return The thread count.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Returns when the measurement was taken.
+     *
+     * @return The time in milliseconds since the epoch.
+     */
+    public long getMeasuredAtMillis() {
+        return measuredAtMillis;
+    }
+
+    /**
+     * Returns whether the result was read from the calibration cache.
+     *
+     * @return true if the result came from the cache.
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    /**
+     * Returns a one-line description of the result.
+     *
+     * @return A string describing the hash rates.
+     */
+    @Override
+    public String toString() {
+        String rates = singleThreadHashesPerSecond + " hashes/second on one thread"
+                + (threads > 1 ? ", " + multiThreadHashesPerSecond + " on " + threads + " threads" : "");
+        return rates + (cached ? " (cached calibration)" : "");
+    }
+}
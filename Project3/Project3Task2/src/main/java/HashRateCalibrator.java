@@ -0,0 +1,320 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The HashRateCalibrator class measures how fast this machine mines, replacing the fixed
+ * 2,000,000-hash loop BlockChain used to run in its constructor.
+ *
+ * A calibration hashes a realistic block header through a BlockHasher, the same code path
+ * proof-of-work uses. It first warms the JIT up for a while, then counts the hashes completed
+ * in a fixed measurement window timed with System.nanoTime(), once on a single thread and once
+ * on every available processor. The result is saved to a small properties file and reused by
+ * later runs on the same machine and Java version for a week, so most starts do not measure
+ * at all. BlockChain starts the shared calibration in the background and shows its result in
+ * the status once it is ready.
+ *
+ * The cache file is set with -Dhashrate.cache=<file> (default: blockchain-hashrate.properties
+ * in the temporary directory); -Dhashrate.cache=none disables it.
+ *
+ * Author: Vishakha Pathak (vmpathak@andrew.cmu.edu)
+ * Last Modified: 10/18/2026
+ */
+public class HashRateCalibrator {
+    /**
+     * The default warm-up time before measuring, in milliseconds.
+     */
+    static final long DEFAULT_WARMUP_MILLIS = 500;
+
+    /**
+     * The default length of each measurement window, in milliseconds.
+     */
+    static final long DEFAULT_MEASURE_MILLIS = 1000;
+
+    /**
+     * How long a cached calibration is trusted, in milliseconds.
+     */
+    private static final long CACHE_MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    /**
+     * The number of hashes between two looks at the clock.
+     */
+    private static final int BATCH = 1024;
+
+    /**
+     * The calibration shared by every BlockChain in this JVM, started on first use.
+     */
+    private static CompletableFuture<HashRate> shared;
+
+    /**
+     * The number of threads for the multi-threaded measurement.
+     */
+    private final int threads;
+
+    /**
+     * The warm-up time, in milliseconds.
+     */
+    private final long warmupMillis;
+
+    /**
+     * The length of each measurement window, in milliseconds.
+     */
+    private final long measureMillis;
+
+    /**
+     * The cache file, or null to neither read nor write a cache.
+     */
+    private final Path cacheFile;
+
+    /**
+     * Constructs a calibrator.
+     *
+     * @param threads       The number of threads for the multi-threaded measurement.
+     * @param warmupMillis  The warm-up time, in milliseconds.
+     * @param measureMillis The length of each measurement window, in milliseconds.
+     * @param cacheFile     The cache file, or null for no cache.
+     */
+    public HashRateCalibrator(int threads, long warmupMillis, long measureMillis, Path cacheFile) {
+        this.threads = Math.max(1, threads);
+        this.warmupMillis = warmupMillis;
+        this.measureMillis = measureMillis;
+        this.cacheFile = cacheFile;
+    }
+
+    /**
+     * Constructs a calibrator with the default timings, one thread per available processor
+     * and the cache file named by the hashrate.cache system property.
+     */
+    public HashRateCalibrator() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_WARMUP_MILLIS, DEFAULT_MEASURE_MILLIS, defaultCacheFile());
+    }
+
+    /**
+     * Returns the cache file named by the hashrate.cache system property.
+     *
+     * @return The cache file, or null if caching is disabled.
+     */
+    private static Path defaultCacheFile() {
+        String name = System.getProperty("hashrate.cache",
+                Paths.get(System.getProperty("java.io.tmpdir"), "blockchain-hashrate.properties").toString());
+        return "none".equals(name) ? null : Paths.get(name);
+    }
+
+    /**
+     * Returns the calibration shared by every chain in this JVM. The first call starts it on a
+     * background thread, unless a cached result can be used straight away.
+     *
+     * @return A future for the hash rate.
+     */
+    public static synchronized CompletableFuture<HashRate> shared() {
+        if (shared == null) {
+            shared = new HashRateCalibrator().calibrateInBackground();
+        }
+        return shared;
+    }
+
+    /**
+     * Returns the cached calibration if there is one, or starts a new one on a background
+     * daemon thread.
+     *
+     * @return A future for the hash rate.
+     */
+    public CompletableFuture<HashRate> calibrateInBackground() {
+        HashRate cachedRate = loadCached();
+        if (cachedRate != null) {
+            return CompletableFuture.completedFuture(cachedRate);
+        }
+        CompletableFuture<HashRate> result = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                result.complete(calibrate());
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }, "hash-rate-calibration");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+        return result;
+    }
+
+    /**
+     * Measures the hash rate now, ignoring any cached result, and saves the result to the cache.
+     *
+     * @return The measured hash rate.
+     */
+    public HashRate calibrate() {
+        long single = measure(1);
+        long multi = threads == 1 ? single : measure(threads);
+        HashRate rate = new HashRate(single, multi, threads, System.currentTimeMillis(), false);
+        save(rate);
+        return rate;
+    }
+
+    /**
+     * Measures the combined hash rate of the given number of threads. Every thread hashes its
+     * own copy of a typical block header, warms up, waits for the others, and then counts the
+     * hashes it completes within the measurement window.
+     *
+     * @param threadCount The number of threads.
+     * @return The combined hashes per second.
+     */
+    long measure(int threadCount) {
+        AtomicLong total = new AtomicLong();
+        CountDownLatch warmedUp = new CountDownLatch(threadCount);
+        Thread[] workers = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            int worker = t;
+            workers[t] = new Thread(() -> {
+                BlockHasher hasher = new BlockHasher(sampleBlock(worker));
+                long nonce = 0;
+                long warmupEnd = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(warmupMillis);
+                while (System.nanoTime() < warmupEnd) {
+                    for (int i = 0; i < BATCH; i++) {
+                        hasher.tryNonce(nonce++);
+                    }
+                }
+                warmedUp.countDown();
+                try {
+                    warmedUp.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long start = System.nanoTime();
+                long end = start + TimeUnit.MILLISECONDS.toNanos(measureMillis);
+                long hashes = 0;
+                long now;
+                do {
+                    for (int i = 0; i < BATCH; i++) {
+                        hasher.tryNonce(nonce++);
+                    }
+                    hashes += BATCH;
+                    now = System.nanoTime();
+                } while (now < end);
+                total.addAndGet((long) (hashes / ((now - start) / 1_000_000_000.0)));
+            }, "hash-rate-worker-" + t);
+            workers[t].setDaemon(true);
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+        return total.get();
+    }
+
+    /**
+     * Builds a block like the ones the server mines: a short transaction, a real previous
+     * hash and a difficulty no nonce in the measurement will meet.
+     *
+     * @param worker The worker number, so that each thread hashes different data.
+     * @return The sample block.
+     */
+    private static Block sampleBlock(int worker) {
+        Block block = new Block(100_000 + worker, new Timestamp(System.currentTimeMillis()),
+                "Alice pays Bob 10 DSCoin (calibration worker " + worker + ")", 32);
+        block.setPreviousHash(BlockHasher.sha256Hex("calibration" + worker));
+        return block;
+    }
+
+    /**
+     * Reads the cached calibration, if it was measured recently on a machine with the same
+     * processor count, architecture and Java version.
+     *
+     * @return The cached hash rate, or null if there is no usable cache.
+     */
+    public HashRate loadCached() {
+        if (cacheFile == null || !Files.isRegularFile(cacheFile)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(cacheFile)) {
+            properties.load(in);
+            long measuredAt = Long.parseLong(properties.getProperty("measuredAt"));
+            if (!environment().equals(properties.getProperty("environment"))
+                    || Integer.parseInt(properties.getProperty("threads")) != threads
+                    || System.currentTimeMillis() - measuredAt > CACHE_MAX_AGE_MILLIS) {
+                return null;
+            }
+            return new HashRate(Long.parseLong(properties.getProperty("singleThread")),
+                    Long.parseLong(properties.getProperty("multiThread")), threads, measuredAt, true);
+        } catch (IOException | RuntimeException e) {
+            // An unreadable cache is the same as no cache.
+            return null;
+        }
+    }
+
+    /**
+     * Saves a calibration to the cache file. A cache that cannot be written is not an error.
+     *
+     * @param rate The hash rate to save.
+     */
+    private void save(HashRate rate) {
+        if (cacheFile == null) {
+            return;
+        }
+        Properties properties = new Properties();
+        properties.setProperty("environment", environment());
+        properties.setProperty("threads", Integer.toString(rate.getThreads()));
+        properties.setProperty("singleThread", Long.toString(rate.getSingleThreadHashesPerSecond()));
+        properties.setProperty("multiThread", Long.toString(rate.getMultiThreadHashesPerSecond()));
+        properties.setProperty("measuredAt", Long.toString(rate.getMeasuredAtMillis()));
+        try (OutputStream out = Files.newOutputStream(cacheFile)) {
+            properties.store(out, "Block hash-rate calibration");
+        } catch (IOException e) {
+            System.out.println("Could not save the hash-rate calibration: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Describes the things a cached calibration depends on.
+     *
+     * @return The processor count, architecture and Java version.
+     */
+    private static String environment() {
+        return Runtime.getRuntime().availableProcessors() + " x " + System.getProperty("os.arch")
+                + ", Java " + System.getProperty("java.version");
+    }
+
+    /**
+     * Runs a fresh calibration and, for comparison, the loop BlockChain used to run: two
+     * million digests of "00000000", each from a new MessageDigest, timed in milliseconds.
+     *
+     * @param args Command line arguments: optional warm-up and measurement times in milliseconds.
+     */
+    public static void main(String[] args) {
+        long warmup = args.length > 0 ? Long.parseLong(args[0]) : DEFAULT_WARMUP_MILLIS;
+        long window = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_MEASURE_MILLIS;
+        HashRateCalibrator calibrator = new HashRateCalibrator(Runtime.getRuntime().availableProcessors(),
+                warmup, window, defaultCacheFile());
+        System.out.println("Calibrated: " + calibrator.calibrate());
+
+        long startTime = System.currentTimeMillis();
+        for (int i = 0; i < 2000000; i++) {
+            try {
+                MessageDigest.getInstance("SHA-256").digest("00000000".getBytes());
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        long endTime = System.currentTimeMillis();
+        System.out.println("Old computeHashesPerSecond() loop: " + (int) (2000000 / ((endTime - startTime) / 1000.0))
+                + " hashes/second");
+    }
+}
@@ -0,0 +1,486 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The MappedBlockStore class keeps a chain's blocks in two memory-mapped files instead of on
+ * the Java heap, so that a chain of millions of blocks costs file pages rather than objects.
+ *
+ * The header file starts with a superblock (magic number, version, block count and the end of
+ * the data file) followed by one fixed-size header per block:
+ *
+ *   int index, long millis, int nanos, int difficulty, int flags, long nonce,
+ *   32 bytes previous hash, long data offset, int data length, int extra length
+ *
+ * The previous hash is kept as 32 raw bytes when it is a 64-digit lower-case hex SHA-256 hash,
+ * which every mined block has. The block data, and the rare values that do not fit the header
+ * (a previous hash in any other form, a nonce beyond the range of a long), go in the data file
+ * at the header's data offset. Both files are mapped in fixed-size chunks that are added as
+ * the chain grows, so reading block i touches only the pages that hold it.
+ *
+ * get() decodes a Block from the mapping and keeps it behind a soft reference, so that while
+ * memory allows, asking for the same index again returns the same object with its hash still
+ * memoized. The store also remembers which slot each block it handed out came from. BlockChain
+ * writes a block back with update() when one of its fields changes, and it goes back to that
+ * slot even if the change was to its index; data that no longer fits where it was is written
+ * at the end of the data file and the old bytes are left unused.
+ *
+ * Author: Vishakha Pathak (vmpathak@andrew.cmu.edu)
+ * Last Modified: 10/18/2026
+ */
+public class MappedBlockStore implements BlockStore {
+    /**
+     * Identifies a header file ("BLKS").
+     */
+    private static final int MAGIC = 0x424C4B53;
+
+    /**
+     * The version of the file layout.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The size of the superblock at the start of the header file.
+     */
+    private static final int SUPERBLOCK_SIZE = 64;
+
+    /**
+     * The size of one block header.
+     */
+    private static final int HEADER_SIZE = 80;
+
+    /**
+     * The number of headers in one mapped chunk of the header file.
+     */
+    private static final int HEADERS_PER_CHUNK = 1 << 19;
+
+    /**
+     * The size of one mapped chunk of the data file.
+     */
+    private static final int DATA_CHUNK_SIZE = 1 << 26;
+
+    // Offsets of the fields within a block header.
+    private static final int INDEX = 0;
+    private static final int MILLIS = 4;
+    private static final int NANOS = 12;
+    private static final int DIFFICULTY = 16;
+    private static final int FLAGS = 20;
+    private static final int NONCE = 24;
+    private static final int PREVIOUS_HASH = 32;
+    private static final int DATA_OFFSET = 64;
+    private static final int DATA_LENGTH = 72;
+    private static final int EXTRA_LENGTH = 76;
+
+    // Offsets of the fields within the superblock.
+    private static final int SB_MAGIC = 0;
+    private static final int SB_VERSION = 4;
+    private static final int SB_COUNT = 8;
+    private static final int SB_DATA_END = 16;
+
+    /**
+     * Flag: the previous hash is stored as raw bytes in the header.
+     */
+    private static final int RAW_PREVIOUS_HASH = 1;
+
+    /**
+     * Flag: the previous hash is stored as a string in the extra bytes.
+     */
+    private static final int STRING_PREVIOUS_HASH = 2;
+
+    /**
+     * Flag: the nonce is stored as a decimal string in the extra bytes.
+     */
+    private static final int BIG_NONCE = 4;
+
+    /**
+     * Flag: the difficulty field holds a bit-level difficulty rather than hex digits.
+     */
+    private static final int BIT_DIFFICULTY = 8;
+
+    /**
+     * Flag: the block is a batch of transactions whose hash covers their Merkle root.
+     */
+    private static final int MERKLE_ROOT = 16;
+
+    /**
+     * A decoded block, kept until memory runs short, with the slot it was read from.
+     */
+    private static final class CachedBlock extends SoftReference<Block> {
+        /**
+         * The slot the block was read from.
+         */
+        final int slot;
+
+        CachedBlock(Block block, int slot, ReferenceQueue<Block> queue) {
+            super(block, queue);
+            this.slot = slot;
+        }
+    }
+
+    private final FileChannel headerChannel;
+    private final FileChannel dataChannel;
+    private final MappedByteBuffer superblock;
+    private final ArrayList<MappedByteBuffer> headerChunks = new ArrayList<>();
+    private final ArrayList<MappedByteBuffer> dataChunks = new ArrayList<>();
+
+    /**
+     * Decoded blocks by slot; guarded by itself, as are slots and cleared.
+     */
+    private final HashMap<Integer, CachedBlock> cache = new HashMap<>();
+
+    /**
+     * The slot of every block handed out by get() or added by append() that is still in use.
+     */
+    private final Map<Block, Integer> slots = new WeakHashMap<>();
+
+    /**
+     * Cache entries whose blocks the collector has cleared.
+     */
+    private final ReferenceQueue<Block> cleared = new ReferenceQueue<>();
+
+    /**
+     * The number of blocks in the store.
+     */
+    private volatile int count;
+
+    /**
+     * The offset in the data file where the next data is written.
+     */
+    private long dataEnd;
+
+    /**
+     * Opens a store, creating its files if they do not exist. The files are the base path with
+     * ".headers" and ".data" appended.
+     *
+     * @param base The base path of the store's files.
+     * @throws UncheckedIOException if the files cannot be opened or are not a block store.
+     */
+    public MappedBlockStore(Path base) {
+        try {
+            headerChannel = FileChannel.open(Paths.get(base + ".headers"),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            dataChannel = FileChannel.open(Paths.get(base + ".data"),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            boolean created = headerChannel.size() == 0;
+            superblock = headerChannel.map(FileChannel.MapMode.READ_WRITE, 0, SUPERBLOCK_SIZE);
+            if (created) {
+                superblock.putInt(SB_MAGIC, MAGIC).putInt(SB_VERSION, VERSION).putLong(SB_COUNT, 0).putLong(SB_DATA_END, 0);
+            } else if (superblock.getInt(SB_MAGIC) != MAGIC || superblock.getInt(SB_VERSION) != VERSION) {
+                throw new IOException(base + ".headers is not a version " + VERSION + " block store.");
+            }
+            count = (int) superblock.getLong(SB_COUNT);
+            dataEnd = superblock.getLong(SB_DATA_END);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public Block get(int index) {
+        Block block = cached(index);
+        if (block != null) {
+            return block;
+        }
+        block = decode(index);
+        synchronized (cache) {
+            // Another thread may have decoded the same slot meanwhile; keep the first
+            Block other = cached(index);
+            if (other != null) {
+                return other;
+            }
+            remember(block, index);
+        }
+        return block;
+    }
+
+    /**
+     * Returns the cached block of a slot, or null if it is not cached or has been cleared.
+     */
+    private Block cached(int slot) {
+        synchronized (cache) {
+            CachedBlock entry;
+            while ((entry = (CachedBlock) cleared.poll()) != null) {
+                cache.remove(entry.slot, entry);
+            }
+            entry = cache.get(slot);
+            return entry == null ? null : entry.get();
+        }
+    }
+
+    /**
+     * Caches a block and records the slot it is stored in.
+     */
+    private void remember(Block block, int slot) {
+        synchronized (cache) {
+            cache.put(slot, new CachedBlock(block, slot, cleared));
+            slots.put(block, slot);
+        }
+    }
+
+    /**
+     * Creates a Block from the header and data of a slot.
+     */
+    private Block decode(int index) {
+        ByteBuffer chunk = headerChunk(index, false);
+        int at = headerPosition(index);
+        int flags = chunk.getInt(at + FLAGS);
+        byte[] data = readData(chunk.getLong(at + DATA_OFFSET), chunk.getInt(at + DATA_LENGTH));
+        Timestamp timestamp = new Timestamp(chunk.getLong(at + MILLIS));
+        timestamp.setNanos(chunk.getInt(at + NANOS));
+        Block block = new Block(chunk.getInt(at + INDEX), timestamp, new String(data, StandardCharsets.UTF_8),
+                chunk.getInt(at + DIFFICULTY));
+        if ((flags & BIT_DIFFICULTY) != 0) {
+            block.setDifficultyBits(chunk.getInt(at + DIFFICULTY));
+        }
+        if ((flags & MERKLE_ROOT) != 0) {
+            block.commitToTransactions();
+        }
+
+        ByteBuffer extra = ByteBuffer.wrap(readData(chunk.getLong(at + DATA_OFFSET) + data.length, chunk.getInt(at + EXTRA_LENGTH)));
+        if ((flags & RAW_PREVIOUS_HASH) != 0) {
+            byte[] hash = new byte[32];
+            chunk.get(at + PREVIOUS_HASH, hash);
+            block.setPreviousHash(BlockHasher.toHex(hash));
+        } else if ((flags & STRING_PREVIOUS_HASH) != 0) {
+            block.setPreviousHash(readString(extra));
+        }
+        if ((flags & BIG_NONCE) != 0) {
+            block.setNonce(new BigInteger(readString(extra)));
+        } else {
+            block.setNonce(chunk.getLong(at + NONCE));
+        }
+        return block;
+    }
+
+    @Override
+    public int getDifficulty(int index) {
+        ByteBuffer chunk = headerChunk(index, false);
+        int at = headerPosition(index);
+        int difficulty = chunk.getInt(at + DIFFICULTY);
+        return (chunk.getInt(at + FLAGS) & BIT_DIFFICULTY) != 0 ? difficulty / 4 : difficulty;
+    }
+
+    @Override
+    public int getDifficultyBits(int index) {
+        ByteBuffer chunk = headerChunk(index, false);
+        int at = headerPosition(index);
+        int difficulty = chunk.getInt(at + DIFFICULTY);
+        return (chunk.getInt(at + FLAGS) & BIT_DIFFICULTY) != 0 ? difficulty : difficulty * 4;
+    }
+
+    @Override
+    public synchronized void append(Block block) {
+        if (block.getIndex() != count) {
+            throw new IllegalArgumentException("Block " + block.getIndex() + " cannot follow block " + (count - 1) + ".");
+        }
+        write(block, count, headerChunk(count, true), true);
+        remember(block, count);
+        count++;
+        superblock.putLong(SB_COUNT, count);
+    }
+
+    @Override
+    public synchronized void update(Block block) {
+        Integer slot;
+        synchronized (cache) {
+            slot = slots.get(block);
+        }
+        if (slot == null) {
+            // Not a block of this store; there is nowhere to write it
+            return;
+        }
+        write(block, slot, headerChunk(slot, false), false);
+    }
+
+    /**
+     * Writes a block's header and, where needed, its data and extra bytes.
+     *
+     * @param block  The block.
+     * @param slot   The slot the block is stored in.
+     * @param chunk  The header chunk holding the slot's header.
+     * @param fresh  true if the block has no header yet.
+     */
+    private void write(Block block, int slot, ByteBuffer chunk, boolean fresh) {
+        int at = headerPosition(slot);
+        int flags = 0;
+        byte[] previousHash = BlockCodec.rawHash(block.getPreviousHash());
+        ByteArrayOutputStream extraBytes = new ByteArrayOutputStream();
+        DataOutputStream extra = new DataOutputStream(extraBytes);
+        try {
+            if (previousHash != null) {
+                flags |= RAW_PREVIOUS_HASH;
+            } else if (block.getPreviousHash() != null) {
+                flags |= STRING_PREVIOUS_HASH;
+                writeString(extra, block.getPreviousHash());
+            }
+            if (!block.hasLongNonce()) {
+                flags |= BIG_NONCE;
+                writeString(extra, block.getNonce().toString());
+            }
+            if (block.hasBitDifficulty()) {
+                flags |= BIT_DIFFICULTY;
+            }
+            if (block.getMerkleRoot() != null) {
+                flags |= MERKLE_ROOT;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] data = block.getData().getBytes(StandardCharsets.UTF_8);
+        byte[] trailer = extraBytes.toByteArray();
+
+        long offset;
+        if (!fresh && data.length + trailer.length
+                <= chunk.getInt(at + DATA_LENGTH) + chunk.getInt(at + EXTRA_LENGTH)) {
+            offset = chunk.getLong(at + DATA_OFFSET);
+        } else {
+            offset = dataEnd;
+            dataEnd += data.length + trailer.length;
+            superblock.putLong(SB_DATA_END, dataEnd);
+        }
+        writeData(offset, data);
+        writeData(offset + data.length, trailer);
+
+        chunk.putInt(at + INDEX, block.getIndex());
+        chunk.putLong(at + MILLIS, block.getTimestamp().getTime());
+        chunk.putInt(at + NANOS, block.getTimestamp().getNanos());
+        chunk.putInt(at + DIFFICULTY, block.hasBitDifficulty() ? block.getDifficultyBits() : block.getDifficulty());
+        chunk.putInt(at + FLAGS, flags);
+        chunk.putLong(at + NONCE, block.hasLongNonce() ? block.getNonceLong() : 0);
+        chunk.put(at + PREVIOUS_HASH, previousHash != null ? previousHash : new byte[32]);
+        chunk.putLong(at + DATA_OFFSET, offset);
+        chunk.putInt(at + DATA_LENGTH, data.length);
+        chunk.putInt(at + EXTRA_LENGTH, trailer.length);
+    }
+
+    @Override
+    public synchronized void sync() {
+        superblock.force();
+        for (MappedByteBuffer chunk : headerChunks) {
+            chunk.force();
+        }
+        for (MappedByteBuffer chunk : dataChunks) {
+            chunk.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        sync();
+        try {
+            headerChannel.close();
+            dataChannel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the position of a block's header within its chunk.
+     */
+    private static int headerPosition(int index) {
+        return (index % HEADERS_PER_CHUNK) * HEADER_SIZE;
+    }
+
+    /**
+     * Returns the mapped chunk holding a block's header, mapping it if needed.
+     *
+     * @param index    The block's index.
+     * @param forWrite true if the header is about to be appended.
+     * @return The chunk.
+     */
+    private ByteBuffer headerChunk(int index, boolean forWrite) {
+        if (index < 0 || (!forWrite && index >= count)) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + count);
+        }
+        return chunk(headerChunks, headerChannel, SUPERBLOCK_SIZE, (long) HEADERS_PER_CHUNK * HEADER_SIZE,
+                index / HEADERS_PER_CHUNK);
+    }
+
+    /**
+     * Returns the numbered chunk of a file, mapping it and any chunks before it if needed.
+     * Mapping a chunk past the end of the file extends the file.
+     */
+    private synchronized MappedByteBuffer chunk(ArrayList<MappedByteBuffer> chunks, FileChannel channel,
+                                                long start, long chunkSize, int number) {
+        try {
+            while (chunks.size() <= number) {
+                chunks.add(channel.map(FileChannel.MapMode.READ_WRITE, start + chunks.size() * chunkSize, chunkSize));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return chunks.get(number);
+    }
+
+    /**
+     * Reads bytes from the data file, across chunk boundaries if needed.
+     */
+    private byte[] readData(long offset, int length) {
+        byte[] bytes = new byte[length];
+        int done = 0;
+        while (done < length) {
+            long position = offset + done;
+            MappedByteBuffer chunk = chunk(dataChunks, dataChannel, 0, DATA_CHUNK_SIZE, (int) (position / DATA_CHUNK_SIZE));
+            int within = (int) (position % DATA_CHUNK_SIZE);
+            int n = Math.min(length - done, DATA_CHUNK_SIZE - within);
+            chunk.get(within, bytes, done, n);
+            done += n;
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes bytes to the data file, across chunk boundaries if needed.
+     */
+    private void writeData(long offset, byte[] bytes) {
+        int done = 0;
+        while (done < bytes.length) {
+            long position = offset + done;
+            MappedByteBuffer chunk = chunk(dataChunks, dataChannel, 0, DATA_CHUNK_SIZE, (int) (position / DATA_CHUNK_SIZE));
+            int within = (int) (position % DATA_CHUNK_SIZE);
+            int n = Math.min(bytes.length - done, DATA_CHUNK_SIZE - within);
+            chunk.put(within, bytes, done, n);
+            done += n;
+        }
+    }
+
+    /**
+     * Writes a length-prefixed UTF-8 string.
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    /**
+     * Reads a string written by writeString().
+     */
+    private static String readString(ByteBuffer in) {
+        byte[] utf8 = new byte[in.getInt()];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
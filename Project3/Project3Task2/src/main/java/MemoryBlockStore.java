@@ -0,0 +1,56 @@
+import java.util.ArrayList;
+
+/**
+ * The MemoryBlockStore class keeps a chain's blocks as Java objects in an ArrayList, as
+ * BlockChain always has. get() returns the stored objects themselves, so changes made to
+ * them are already in the store and update() has nothing to do.
+ *
+ * Author: Vishakha Pathak (vmpathak@andrew.cmu.edu)
+ * Last Modified: 10/18/2026
+ */
+public class MemoryBlockStore implements BlockStore {
+    /**
+     * The blocks, in index order.
+     */
+    private final ArrayList<Block> blocks = new ArrayList<>();
+
+    @Override
+    public int size() {
+        return blocks.size();
+    }
+
+    @Override
+    public Block get(int index) {
+        return blocks.get(index);
+    }
+
+    @Override
+    public int getDifficulty(int index) {
+        return blocks.get(index).getDifficulty();
+    }
+
+    @Override
+    public int getDifficultyBits(int index) {
+        return blocks.get(index).getDifficultyBits();
+    }
+
+    @Override
+    public void append(Block block) {
+        blocks.add(block);
+    }
+
+    @Override
+    public void update(Block block) {
+        // The stored object is the one that changed.
+    }
+
+    @Override
+    public void sync() {
+        // Nothing is buffered.
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release.
+    }
+}
@@ -0,0 +1,130 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Mempool class holds transactions that have been accepted but not yet mined. Submitting a
+ * transaction returns at once with a future that a BlockProducer completes with a receipt once
+ * the transaction is on the chain, or completes exceptionally if mining it fails.
+ *
+ * The pool is bounded; when it is full, new transactions are refused rather than queued
+ * without limit.
+ *
+ * Author: Vishakha Pathak (vmpathak@andrew.cmu.edu)
+ * Last Modified: 10/18/2026
+ */
+public class Mempool {
+    /**
+     * A transaction waiting in the pool.
+     */
+    static final class PendingTransaction {
+        /**
+         * The transaction.
+         */
+        final String transaction;
+
+        /**
+         * The difficulty the submitter asked for, in bits.
+         */
+        final int difficultyBits;
+
+        /**
+         * Completed with the receipt once the transaction is mined.
+         */
+        final CompletableFuture<TransactionReceipt> receipt = new CompletableFuture<>();
+
+        /**
+         * Constructs a pending transaction.
+         *
+         * @param transaction    The transaction.
+         * @param difficultyBits The difficulty asked for, in bits.
+         */
+        PendingTransaction(String transaction, int difficultyBits) {
+            this.transaction = transaction;
+            this.difficultyBits = difficultyBits;
+        }
+    }
+
+    /**
+     * The transactions waiting to be mined, oldest first.
+     */
+    private final LinkedBlockingQueue<PendingTransaction> pending;
+
+    /**
+     * Constructs a mempool.
+     *
+     * @param capacity The most transactions that may wait at once.
+     */
+    public Mempool(int capacity) {
+        this.pending = new LinkedBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Accepts a transaction for the next block.
+     *
+     * @param transaction    The transaction.
+     * @param difficultyBits The least difficulty the block holding it should have, in bits.
+     * @return A future for the receipt; already failed with an IllegalArgumentException if the
+     *         transaction is null or empty, or an IllegalStateException if the pool is full.
+     */
+    public CompletableFuture<TransactionReceipt> submit(String transaction, int difficultyBits) {
+        PendingTransaction entry = new PendingTransaction(transaction, difficultyBits);
+        if (transaction == null || transaction.isEmpty()) {
+            entry.receipt.completeExceptionally(new IllegalArgumentException("The transaction is empty."));
+        } else if (!pending.offer(entry)) {
+            entry.receipt.completeExceptionally(new IllegalStateException("The mempool is full; try again later."));
+        }
+        return entry.receipt;
+    }
+
+    /**
+     * Waits for a transaction, then collects further ones until the batch is full or the
+     * wait since the first one has run out.
+     *
+     * @param maxTransactions The most transactions to return.
+     * @param maxWaitMillis   How long to keep collecting after the first transaction.
+     * @return The batch, oldest first; never empty.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    List<PendingTransaction> takeBatch(int maxTransactions, long maxWaitMillis) throws InterruptedException {
+        List<PendingTransaction> batch = new ArrayList<>();
+        batch.add(pending.take());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        while (batch.size() < maxTransactions) {
+            // Take whatever is already waiting without blocking, then wait for the rest.
+            pending.drainTo(batch, maxTransactions - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxTransactions || remaining <= 0) {
+                break;
+            }
+            PendingTransaction next = pending.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    /**
+     * Removes every waiting transaction, so that their futures can be failed on shutdown.
+     *
+     * @return The transactions that were waiting.
+     */
+    List<PendingTransaction> drain() {
+        List<PendingTransaction> left = new ArrayList<>();
+        pending.drainTo(left);
+        return left;
+    }
+
+    /**
+     * Returns the number of transactions waiting.
+     *
+     * @return The pool size.
+     */
+    public int size() {
+        return pending.size();
+    }
+}
@@ -0,0 +1,152 @@
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * The MerkleTree class computes the Merkle root a batched block commits to, and the inclusion
+ * proofs handed back to clients whose transactions went into it.
+ *
+ * Leaves are SHA-256(0x00 || transaction) and inner nodes SHA-256(0x01 || left || right), so a
+ * leaf can never be passed off as an inner node. A node without a sibling at the end of a
+ * level moves up unchanged rather than being paired with a copy of itself, so no two distinct
+ * transaction lists share a root. The root of an empty list is the hash of no bytes.
+ *
+ * A proof lists the sibling hashes from the leaf up to the root, each prefixed with "L:" or
+ * "R:" for the side the sibling is on; verify() recomputes the root from a transaction and its
+ * proof.
+ *
+ * Author: Vishakha Pathak (vmpathak@andrew.cmu.edu)
+ * Last Modified: 10/18/2026
+ */
+public class MerkleTree {
+    /**
+     * Not instantiated; all methods are static.
+     */
+    private MerkleTree() {
+    }
+
+    /**
+     * Computes the Merkle root of a list of transactions.
+     *
+     * @param transactions The transactions, in block order.
+     * @return The root as lower-case hexadecimal.
+     */
+    public static String root(List<String> transactions) {
+        MessageDigest digest = BlockHasher.newDigest();
+        if (transactions.isEmpty()) {
+            return BlockHasher.toHex(digest.digest());
+        }
+        List<byte[]> level = leaves(transactions, digest);
+        while (level.size() > 1) {
+            level = parents(level, digest);
+        }
+        return BlockHasher.toHex(level.get(0));
+    }
+
+    /**
+     * Computes the inclusion proof of one transaction.
+     *
+     * @param transactions The transactions, in block order.
+     * @param position     The position of the transaction to prove.
+     * @return The sibling hashes from the leaf up, each prefixed with "L:" or "R:".
+     * @throws IndexOutOfBoundsException if position is not a position in the list.
+     */
+    public static List<String> proof(List<String> transactions, int position) {
+        if (position < 0 || position >= transactions.size()) {
+            throw new IndexOutOfBoundsException("No transaction at position " + position + ".");
+        }
+        MessageDigest digest = BlockHasher.newDigest();
+        List<String> proof = new ArrayList<>();
+        List<byte[]> level = leaves(transactions, digest);
+        int node = position;
+        while (level.size() > 1) {
+            int sibling = node ^ 1;
+            if (sibling < level.size()) {
+                proof.add((sibling < node ? "L:" : "R:") + BlockHasher.toHex(level.get(sibling)));
+            }
+            level = parents(level, digest);
+            node /= 2;
+        }
+        return proof;
+    }
+
+    /**
+     * Checks that a transaction is included under a Merkle root.
+     *
+     * @param transaction The transaction.
+     * @param proof       Its inclusion proof, as returned by proof().
+     * @param root        The Merkle root, in hexadecimal.
+     * @return true if the proof leads from the transaction to the root.
+     */
+    public static boolean verify(String transaction, List<String> proof, String root) {
+        MessageDigest digest = BlockHasher.newDigest();
+        try {
+            byte[] hash = leaf(transaction, digest);
+            for (String step : proof) {
+                byte[] sibling = HexFormat.of().parseHex(step.substring(2));
+                hash = step.startsWith("L:") ? node(sibling, hash, digest) : node(hash, sibling, digest);
+            }
+            return BlockHasher.toHex(hash).equals(root);
+        } catch (IllegalArgumentException | StringIndexOutOfBoundsException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Hashes every transaction into a leaf.
+     *
+     * @param transactions The transactions.
+     * @param digest       The digest to use.
+     * @return The leaf hashes.
+     */
+    private static List<byte[]> leaves(List<String> transactions, MessageDigest digest) {
+        List<byte[]> level = new ArrayList<>(transactions.size());
+        for (String transaction : transactions) {
+            level.add(leaf(transaction, digest));
+        }
+        return level;
+    }
+
+    /**
+     * Hashes each pair of nodes into their parent; a node left over at the end moves up as is.
+     *
+     * @param level  The nodes of one level.
+     * @param digest The digest to use.
+     * @return The nodes of the level above.
+     */
+    private static List<byte[]> parents(List<byte[]> level, MessageDigest digest) {
+        List<byte[]> parents = new ArrayList<>((level.size() + 1) / 2);
+        for (int i = 0; i < level.size(); i += 2) {
+            parents.add(i + 1 < level.size() ? node(level.get(i), level.get(i + 1), digest) : level.get(i));
+        }
+        return parents;
+    }
+
+    /**
+     * Hashes a transaction into a leaf.
+     *
+     * @param transaction The transaction.
+     * @param digest      The digest to use.
+     * @return SHA-256(0x00 || transaction).
+     */
+    private static byte[] leaf(String transaction, MessageDigest digest) {
+        digest.update((byte) 0);
+        return digest.digest(transaction.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Hashes two nodes into their parent.
+     *
+     * @param left   The left child.
+     * @param right  The right child.
+     * @param digest The digest to use.
+     * @return SHA-256(0x01 || left || right).
+     */
+    private static byte[] node(byte[] left, byte[] right, MessageDigest digest) {
+        digest.update((byte) 1);
+        digest.update(left);
+        return digest.digest(right);
+    }
+}
@@ -0,0 +1,251 @@
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * The MiningJob class tracks one block being mined by BlockChain.addBlockAsync().
+ *
+ * A job is a Future for the mined block. It counts the nonces tried, publishes MiningProgress
+ * to an optional listener, and can be cancelled or given a deadline. A job that is cancelled
+ * or runs past its deadline before its block is appended never changes the chain; once the
+ * block is being appended, cancel() returns false.
+ *
+ * Author: Vishakha Pathak (vmpathak@andrew.cmu.edu)
+ * Last Modified: 10/18/2026
+ */
+public class MiningJob implements Future<Block> {
+    /**
+     * The job is still queued or mining.
+     */
+    private static final int RUNNING = 0;
+
+    /**
+     * The block has been mined and is being appended to the chain.
+     */
+    private static final int COMMITTING = 1;
+
+    /**
+     * The job has finished, successfully or not.
+     */
+    private static final int DONE = 2;
+
+    /**
+     * The minimum time between two progress notifications, in nanoseconds.
+     */
+    private static final long PROGRESS_INTERVAL_NANOS = 250_000_000L;
+
+    /**
+     * The block being mined.
+     */
+    private final Block block;
+
+    /**
+     * The future completed with the block once it is on the chain.
+     */
+    private final CompletableFuture<Block> result = new CompletableFuture<>();
+
+    /**
+     * The lifecycle state: RUNNING, COMMITTING or DONE.
+     */
+    private final AtomicInteger state = new AtomicInteger(RUNNING);
+
+    /**
+     * The number of nonces tried so far.
+     */
+    private final AtomicLong noncesTried = new AtomicLong();
+
+    /**
+     * When the last progress notification was published.
+     */
+    private final AtomicLong lastPublished;
+
+    /**
+     * When the job was created.
+     */
+    private final long startNanos;
+
+    /**
+     * When the job must give up, or 0 for no deadline.
+     */
+    private final long deadlineNanos;
+
+    /**
+     * The chain's hashes-per-second figure, used to estimate the time left.
+     */
+    private final double estimatedHashesPerSecond;
+
+    /**
+     * Receives progress notifications, or null.
+     */
+    private final Consumer<MiningProgress> listener;
+
+    /**
+     * Constructs a job for the given block.
+     *
+     * @param block                    The block to mine.
+     * @param estimatedHashesPerSecond The expected hash rate, used to estimate the time left.
+     * @param timeoutMillis            The time allowed for mining, or 0 for no deadline.
+     * @param listener                 Receives progress notifications; may be null.
+     */
+    public MiningJob(Block block, double estimatedHashesPerSecond, long timeoutMillis, Consumer<MiningProgress> listener) {
+        this.block = block;
+        this.estimatedHashesPerSecond = estimatedHashesPerSecond;
+        this.listener = listener;
+        this.startNanos = System.nanoTime();
+        this.lastPublished = new AtomicLong(startNanos);
+        this.deadlineNanos = timeoutMillis > 0 ? startNanos + TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : 0;
+    }
+
+    /**
+     * Returns the block this job mines.
+     *
+     * @return The block.
+     */
+    public Block getBlock() {
+        return block;
+    }
+
+    /**
+     * Returns the current progress of this job.
+     *
+     * @return A progress snapshot.
+     */
+    public MiningProgress getProgress() {
+        long tried = noncesTried.get();
+        long elapsedNanos = System.nanoTime() - startNanos;
+        double rate = elapsedNanos == 0 ? 0 : tried / (elapsedNanos / 1_000_000_000.0);
+        double remaining = Math.max(0, Math.pow(2, block.getDifficultyBits()) - tried);
+        long remainingMillis = estimatedHashesPerSecond > 0 ? (long) (remaining / estimatedHashesPerSecond * 1000) : 0;
+        return new MiningProgress(tried, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), rate, remainingMillis);
+    }
+
+    /**
+     * Records nonces tried by a mining thread and publishes progress if enough time has passed.
+     *
+     * @param attempts The number of nonces tried since the last call.
+     */
+    void recordAttempts(long attempts) {
+        noncesTried.addAndGet(attempts);
+        if (listener == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        long last = lastPublished.get();
+        if (now - last >= PROGRESS_INTERVAL_NANOS && lastPublished.compareAndSet(last, now)) {
+            listener.accept(getProgress());
+        }
+    }
+
+    /**
+     * Returns whether mining should stop because the job was cancelled or ran past its deadline.
+     * A job found past its deadline is completed with a TimeoutException.
+     *
+     * @return true if mining should stop.
+     */
+    boolean shouldStop() {
+        if (state.get() != RUNNING) {
+            return true;
+        }
+        if (deadlineNanos != 0 && System.nanoTime() - deadlineNanos > 0 && state.compareAndSet(RUNNING, DONE)) {
+            result.completeExceptionally(new TimeoutException("Mining did not finish within the deadline."));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Claims the job for appending its block. After a successful claim the job can no longer
+     * be cancelled or time out.
+     *
+     * @return true if the block may be appended; false if the job was cancelled or timed out.
+     */
+    boolean beginCommit() {
+        return !shouldStop() && state.compareAndSet(RUNNING, COMMITTING);
+    }
+
+    /**
+     * Completes the job with its block after it was appended to the chain.
+     */
+    void complete() {
+        state.set(DONE);
+        result.complete(block);
+    }
+
+    /**
+     * Completes the job with an error.
+     *
+     * @param error The cause of the failure.
+     */
+    void fail(Throwable error) {
+        state.set(DONE);
+        result.completeExceptionally(error);
+    }
+
+    /**
+     * Cancels the job if its block has not been appended yet. The chain is left unchanged.
+     *
+     * @param mayInterruptIfRunning Ignored; mining threads stop on their own.
+     * @return true if the job was cancelled.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (state.compareAndSet(RUNNING, DONE)) {
+            return result.cancel(false);
+        }
+        return false;
+    }
+
+    /**
+     * Cancels the job if its block has not been appended yet.
+     *
+     * @return true if the job was cancelled.
+     */
+    public boolean cancel() {
+        return cancel(false);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return result.isCancelled();
+    }
+
+    @Override
+    public boolean isDone() {
+        return result.isDone();
+    }
+
+    @Override
+    public Block get() throws InterruptedException, ExecutionException {
+        return result.get();
+    }
+
+    @Override
+    public Block get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        return result.get(timeout, unit);
+    }
+
+    /**
+     * Returns a CompletableFuture view of this job for chaining. Completing or cancelling the
+     * returned future does not affect the job; use cancel() for that.
+     *
+     * @return A copy of the job's result future.
+     */
+    public CompletableFuture<Block> toCompletableFuture() {
+        return result.copy();
+    }
+
+    /**
+     * Creates the exception mining threads throw to unwind once shouldStop() is true.
+     *
+     * @return The exception to throw.
+     */
+    static CancellationException stopped() {
+        return new CancellationException("Mining was cancelled or ran past its deadline.");
+    }
+}
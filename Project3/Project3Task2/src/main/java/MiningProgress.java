@@ -0,0 +1,95 @@
+/**
+ * The MiningProgress class is a snapshot of how far proof-of-work for one block has come.
+ *
+ * It is published periodically by a MiningJob while BlockChain.addBlockAsync() is mining, and
+ * can also be read on demand from the job.
+ *
+ * Author: Vishakha Pathak (vmpathak@andrew.cmu.edu)
+ * Last Modified: 10/18/2026
+ */
+public class MiningProgress {
+    /**
+     * The number of nonces tried so far.
+     */
+    private final long noncesTried;
+
+    /**
+     * The time spent mining so far, in milliseconds.
+     */
+    private final long elapsedMillis;
+
+    /**
+     * The measured hash rate of this job, in hashes per second.
+     */
+    private final double hashesPerSecond;
+
+    /**
+     * The estimated time left, in milliseconds.
+     */
+    private final long estimatedMillisRemaining;
+
+    /**
+     * Constructs a progress snapshot.
+     *
+     * @param noncesTried              The number of nonces tried so far.
+     * @param elapsedMillis            The time spent mining so far, in milliseconds.
+     * @param hashesPerSecond          The measured hash rate.
+     * @param estimatedMillisRemaining The estimated time left, in milliseconds.
+     */
+    public MiningProgress(long noncesTried, long elapsedMillis, double hashesPerSecond, long estimatedMillisRemaining) {
+        this.noncesTried = noncesTried;
+        this.elapsedMillis = elapsedMillis;
+        this.hashesPerSecond = hashesPerSecond;
+        this.estimatedMillisRemaining = estimatedMillisRemaining;
+    }
+
+    /**
+     * Returns the number of nonces tried so far.
+     *
+     * @return The nonces tried.
+     */
+    public long getNoncesTried() {
+        return noncesTried;
+    }
+
+    /**
+     * Returns the time spent mining so far.
+     *
+     * @return The elapsed time in milliseconds.
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Returns the hash rate measured for this job.
+     *
+     * @return The hashes per second.
+     */
+    public double getHashesPerSecond() {
+        return hashesPerSecond;
+    }
+
+    /**
+     * Returns the estimated time left. The estimate assumes the expected number of hashes for
+     * the block's difficulty (2^bits) and the chain's hashes-per-second figure, so it can
+     * reach zero while mining is still going on.
+     *
+     * @return The estimated remaining time in milliseconds.
+     */
+    public long getEstimatedMillisRemaining() {
+        return estimatedMillisRemaining;
+    }
+
+    /**
+     * Returns a one-line description of the progress.
+     *
+     * @return A string describing the progress.
+     */
+    @Override
+    public String toString() {
+        return "Tried " + noncesTried + " nonces in " + elapsedMillis + " ms ("
+                + String.format("%.0f", hashesPerSecond) + " hashes/second), about "
+                + estimatedMillisRemaining + " ms left";
+    }
+}
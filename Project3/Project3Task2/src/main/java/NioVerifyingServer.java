@@ -0,0 +1,658 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The NioVerifyingServer class serves the same signed JSON protocol as VerifyingServerTCP, on
+ * the same port, from one event-loop thread instead of one thread per connection.
+ *
+ * The event loop owns every socket. It accepts connections, reads whatever bytes are
+ * available into each connection's partial line, and cuts a request off at every newline.
+ * A request's RSA signature is checked by the shared SignatureVerifier as soon as the line
+ * is read, in parallel with the connection's other pipelined requests. Handling it is left to
+ * a fixed pool of worker threads, since verifying or repairing the chain can take a while.
+ * Like VerifyingServerTCP, a connection's requests are handled one after another, each seeing
+ * the chain as the previous one left it, while different connections' requests run in parallel. An
+ * addTransaction request does not hold a worker while its block is mined: its reply completes
+ * when the BlockProducer mines the block.
+ *
+ * Replies go back in request order. Every request line takes a place in its connection's
+ * reply queue when it is read. A reply is a queue of byte chunks; whenever a chunk is added,
+ * the event loop is woken and writes the chunks of the reply at the head of the queue, as far
+ * as the socket accepts them, keeping the rest for when it becomes writable again. A streamed
+ * chain is written by its worker a chunk at a time: once MAX_QUEUED_CHUNKS are waiting to be
+ * sent, the worker waits for the event loop to send one, so a slow client holds back the
+ * stream rather than filling the heap. The worker waits only between chunks of blocks, with
+ * the chain's read lock released, so a slow client never holds back the chain's writers; once
+ * the connection is closed, the stream stops at its next chunk. A connection stops being read while
+ * MAX_PENDING_REPLIES replies are outstanding, and is closed if one line grows beyond
+ * MAX_LINE_BYTES.
+ *
+ * Author: Vishakha Pathak (vmpathak@andrew.cmu.edu)
+ * Last Modified: 10/18/2026
+ */
+public class NioVerifyingServer {
+    /**
+     * The most replies a connection may have outstanding before it stops being read.
+     */
+    static final int MAX_PENDING_REPLIES = 64;
+
+    /**
+     * The longest request line accepted, in bytes.
+     */
+    static final int MAX_LINE_BYTES = 1 << 20;
+
+    /**
+     * The size of the chunks a streamed reply is cut into, in bytes.
+     */
+    static final int CHUNK_BYTES = 16 * 1024;
+
+    /**
+     * The most chunks of a streamed reply waiting to be sent before its worker waits.
+     */
+    static final int MAX_QUEUED_CHUNKS = 4;
+
+    /**
+     * One client connection; touched only by the event-loop thread.
+     */
+    private static final class Connection {
+        /**
+         * The client's channel.
+         */
+        final SocketChannel channel;
+
+        /**
+         * The channel's registration with the selector.
+         */
+        final SelectionKey key;
+
+        /**
+         * The bytes of the request line read so far.
+         */
+        final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        /**
+         * The replies not yet written, in request order.
+         */
+        final ArrayDeque<Reply> replies = new ArrayDeque<>();
+
+        /**
+         * The key this connection last used, in front of the shared key cache.
+         */
+        final PublicKeyCache.Session keys = VerifyingServerTCP.newKeySession();
+
+        /**
+         * Completes when the last request read has been handled; the next request is handled
+         * after it.
+         */
+        CompletableFuture<Void> lastReply = CompletableFuture.completedFuture(null);
+
+        /**
+         * The chunk being written, or null.
+         */
+        ByteBuffer writing;
+
+        /**
+         * Whether the client has closed its side of the connection.
+         */
+        boolean inputClosed;
+
+        /**
+         * Constructs a connection.
+         *
+         * @param channel The client's channel.
+         * @param key     The channel's registration with the selector.
+         */
+        Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+    }
+
+    /**
+     * The bytes of one reply, as a queue of chunks. A worker adds them, the event loop sends
+     * them; the queue is guarded by the reply's monitor. As an OutputStream, it cuts what is
+     * written into CHUNK_BYTES chunks and waits while MAX_QUEUED_CHUNKS are unsent.
+     */
+    private final class Reply extends OutputStream {
+        /**
+         * The connection the reply goes to.
+         */
+        private final Connection connection;
+
+        /**
+         * The chunks added and not yet taken by the event loop.
+         */
+        private final ArrayDeque<ByteBuffer> chunks = new ArrayDeque<>();
+
+        /**
+         * The chunk being filled by write(), or null; touched only by the writing thread.
+         */
+        private ByteBuffer filling;
+
+        /**
+         * Whether the whole reply has been added.
+         */
+        private boolean finished;
+
+        /**
+         * Whether the connection was closed, so nothing more will be sent.
+         */
+        private boolean abandoned;
+
+        /**
+         * Constructs an empty reply.
+         *
+         * @param connection The connection the reply goes to.
+         */
+        Reply(Connection connection) {
+            this.connection = connection;
+        }
+
+        /**
+         * Adds a whole reply, or a last line after a streamed one, without waiting.
+         *
+         * @param text The reply text.
+         */
+        void send(String text) {
+            synchronized (this) {
+                if (!abandoned) {
+                    chunks.add(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+                }
+            }
+            wakeEventLoop();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (filling == null) {
+                    filling = ByteBuffer.allocate(CHUNK_BYTES);
+                }
+                int n = Math.min(length, filling.remaining());
+                filling.put(bytes, offset, n);
+                offset += n;
+                length -= n;
+                if (!filling.hasRemaining()) {
+                    flush();
+                }
+            }
+        }
+
+        /**
+         * Queues the chunk being filled, waiting while MAX_QUEUED_CHUNKS are unsent.
+         *
+         * @throws IOException if the connection was closed or the worker was interrupted.
+         */
+        @Override
+        public void flush() throws IOException {
+            if (filling == null || filling.position() == 0) {
+                return;
+            }
+            ByteBuffer chunk = filling.flip();
+            filling = null;
+            synchronized (this) {
+                try {
+                    while (chunks.size() >= MAX_QUEUED_CHUNKS && !abandoned) {
+                        wait();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while streaming a reply.");
+                }
+                if (abandoned) {
+                    throw new IOException("The connection was closed.");
+                }
+                chunks.add(chunk);
+            }
+            wakeEventLoop();
+        }
+
+        /**
+         * Marks the reply complete; nothing is added after this.
+         */
+        void finish() {
+            synchronized (this) {
+                finished = true;
+            }
+            wakeEventLoop();
+        }
+
+        /**
+         * Takes the next chunk to send, letting a waiting worker add another.
+         *
+         * @return The chunk, or null if none is ready.
+         */
+        synchronized ByteBuffer poll() {
+            ByteBuffer chunk = chunks.poll();
+            if (chunk != null) {
+                notifyAll();
+            }
+            return chunk;
+        }
+
+        /**
+         * Returns whether every chunk of the reply has been taken.
+         *
+         * @return true once the reply is finished and no chunk is left.
+         */
+        synchronized boolean isDone() {
+            return finished && chunks.isEmpty();
+        }
+
+        /**
+         * Drops the unsent chunks of a closed connection and releases a waiting worker.
+         */
+        synchronized void abandon() {
+            abandoned = true;
+            chunks.clear();
+            notifyAll();
+        }
+
+        /**
+         * Has the event loop send what the reply now holds.
+         */
+        private void wakeEventLoop() {
+            completed.add(connection);
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * The selector the event loop waits on.
+     */
+    private final Selector selector;
+
+    /**
+     * The listening channel.
+     */
+    private final ServerSocketChannel serverChannel;
+
+    /**
+     * The threads that handle requests.
+     */
+    private final ExecutorService workers;
+
+    /**
+     * The open connections; touched only by the event-loop thread.
+     */
+    private final Set<Connection> connections = new HashSet<>();
+
+    /**
+     * Connections with newly added reply chunks, handed from the adding thread to the event loop.
+     */
+    private final ConcurrentLinkedQueue<Connection> completed = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The buffer sockets are read into.
+     */
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(16 * 1024);
+
+    /**
+     * The event-loop thread, or null when not started.
+     */
+    private Thread loop;
+
+    /**
+     * When a graceful stop gives up on unfinished replies, in System.nanoTime() terms; set once
+     * stop() has been called.
+     */
+    private volatile Long stopDeadline;
+
+    /**
+     * Opens the server's listening socket; call start() to begin serving.
+     *
+     * @param port          The port to listen on, or 0 for any free port.
+     * @param workerThreads The number of threads that handle requests.
+     * @throws IOException if the port cannot be bound.
+     */
+    public NioVerifyingServer(int port, int workerThreads) throws IOException {
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workerThreads));
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return The local port.
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Starts the event-loop thread, if it is not running already.
+     */
+    public synchronized void start() {
+        if (loop != null) {
+            return;
+        }
+        loop = new Thread(this::run, "nio-event-loop");
+        loop.start();
+    }
+
+    /**
+     * Stops the server gracefully: no new connections are accepted and no more requests are
+     * read, but replies to requests already read are still written. Connections are closed as
+     * their replies finish, and any left after graceMillis are closed anyway.
+     *
+     * @param graceMillis How long to wait for outstanding replies, in milliseconds.
+     */
+    public synchronized void stop(long graceMillis) {
+        if (stopDeadline != null) {
+            return;
+        }
+        stopDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(graceMillis);
+        selector.wakeup();
+        try {
+            if (loop != null) {
+                loop.join();
+            } else {
+                closeAll();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workers.shutdownNow();
+    }
+
+    /**
+     * Runs the event loop until the server is stopped and its connections are closed.
+     */
+    private void run() {
+        boolean stopping = false;
+        try {
+            while (true) {
+                Long deadline = stopDeadline;
+                if (deadline != null && !stopping) {
+                    stopping = true;
+                    serverChannel.close();
+                    for (Connection connection : new ArrayList<>(connections)) {
+                        connection.inputClosed = true;
+                        flush(connection);
+                    }
+                }
+                if (stopping && (connections.isEmpty() || System.nanoTime() - deadline >= 0)) {
+                    break;
+                }
+                if (stopping) {
+                    selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+                } else {
+                    selector.select();
+                }
+                Connection ready;
+                while ((ready = completed.poll()) != null) {
+                    flush(ready);
+                }
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Connection connection = (Connection) key.attachment();
+                        if (key.isReadable()) {
+                            read(connection);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            flush(connection);
+                        }
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+        } catch (IOException e) {
+            System.out.println("Server I/O error: " + e.getMessage());
+        } finally {
+            closeAll();
+        }
+    }
+
+    /**
+     * Accepts every pending connection.
+     *
+     * @throws IOException if the listening channel fails.
+     */
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            Connection connection = new Connection(channel, key);
+            key.attach(connection);
+            connections.add(connection);
+        }
+    }
+
+    /**
+     * Reads what a connection has sent and dispatches every complete line.
+     *
+     * @param connection The connection.
+     */
+    private void read(Connection connection) {
+        int count;
+        try {
+            count = connection.channel.read(readBuffer);
+        } catch (IOException e) {
+            close(connection);
+            return;
+        }
+        if (count < 0) {
+            connection.inputClosed = true;
+        }
+        byte[] bytes = readBuffer.array();
+        int start = 0;
+        for (int i = 0; i < readBuffer.position(); i++) {
+            if (bytes[i] == '\n') {
+                connection.line.write(bytes, start, i - start);
+                dispatch(connection, lineText(connection.line));
+                connection.line.reset();
+                start = i + 1;
+            }
+        }
+        connection.line.write(bytes, start, readBuffer.position() - start);
+        readBuffer.clear();
+        if (connection.inputClosed && connection.line.size() > 0) {
+            // A last line without a newline still counts, as with readLine()
+            dispatch(connection, lineText(connection.line));
+            connection.line.reset();
+        }
+        if (connection.line.size() > MAX_LINE_BYTES) {
+            System.out.println("Closing " + connection.channel.socket().getRemoteSocketAddress()
+                    + ": request longer than " + MAX_LINE_BYTES + " bytes.");
+            close(connection);
+            return;
+        }
+        flush(connection);
+    }
+
+    /**
+     * Decodes a request line, dropping a carriage return before the newline as readLine() does.
+     *
+     * @param line The bytes of the line, without the newline.
+     * @return The line as a string.
+     */
+    private static String lineText(ByteArrayOutputStream line) {
+        String text = line.toString(StandardCharsets.UTF_8);
+        return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+    }
+
+    /**
+     * Queues a request line's reply on its connection and hands the request to a worker.
+     *
+     * @param connection The connection the line came from.
+     * @param line       The request line.
+     */
+    private void dispatch(Connection connection, String line) {
+        // Verified at once, in parallel with the connection's other pipelined requests, but handled
+        // only once the previous request's reply is ready, as on a thread-per-connection server
+        CompletableFuture<SignatureVerifier.Checked> checked = VerifyingServerTCP.getVerifier().check(line, connection.keys);
+        Reply reply = new Reply(connection);
+        CompletableFuture<Void> handled = connection.lastReply
+                .thenCombine(checked, (previous, request) -> request)
+                .thenComposeAsync(request -> respond(request, reply), workers)
+                .exceptionally(failure -> {
+                    reply.send(VerifyingServerTCP.errorLine("Request failed: "
+                            + (failure.getCause() != null ? failure.getCause() : failure)));
+                    return null;
+                });
+        handled.whenComplete((done, failure) -> reply.finish());
+        connection.lastReply = handled;
+        connection.replies.add(reply);
+    }
+
+    /**
+     * Handles one checked request on a worker thread, adding its reply text to the reply.
+     * A streamed chain is written to the reply a chunk of blocks at a time, and stops as soon
+     * as the PrintWriter reports that the reply was abandoned.
+     *
+     * @param checked The request and the outcome of checking it.
+     * @param reply   Where the reply goes.
+     * @return Completes when the whole reply has been added.
+     */
+    static CompletableFuture<Void> respond(SignatureVerifier.Checked checked, Reply reply) {
+        if (checked.error != null) {
+            reply.send(VerifyingServerTCP.errorLine(checked.error));
+            return CompletableFuture.completedFuture(null);
+        }
+        if ("streamBlockchain".equals(checked.request.getCommand())) {
+            VerifyingServerTCP.streamBlockchain(new PrintWriter(new OutputStreamWriter(reply, StandardCharsets.UTF_8)));
+            return CompletableFuture.completedFuture(null);
+        }
+        return VerifyingServerTCP.handleRequestAsync(checked.request)
+                .thenAccept(response -> reply.send(VerifyingServerTCP.replyLine(response)));
+    }
+
+    /**
+     * Writes a connection's reply chunks in order, as far as the socket accepts them, then
+     * sets what the connection waits for next, or closes it once nothing more will come.
+     *
+     * @param connection The connection.
+     */
+    private void flush(Connection connection) {
+        if (!connection.key.isValid()) {
+            return;
+        }
+        try {
+            while (true) {
+                if (connection.writing == null) {
+                    Reply head = connection.replies.peek();
+                    if (head == null) {
+                        break;
+                    }
+                    connection.writing = head.poll();
+                    if (connection.writing == null) {
+                        if (!head.isDone()) {
+                            break;
+                        }
+                        connection.replies.poll();
+                        continue;
+                    }
+                }
+                connection.channel.write(connection.writing);
+                if (connection.writing.hasRemaining()) {
+                    break;
+                }
+                connection.writing = null;
+            }
+        } catch (IOException e) {
+            close(connection);
+            return;
+        }
+        if (connection.inputClosed && connection.writing == null && connection.replies.isEmpty()) {
+            close(connection);
+            return;
+        }
+        int interest = 0;
+        if (!connection.inputClosed && connection.replies.size() < MAX_PENDING_REPLIES) {
+            interest |= SelectionKey.OP_READ;
+        }
+        if (connection.writing != null) {
+            interest |= SelectionKey.OP_WRITE;
+        }
+        connection.key.interestOps(interest);
+    }
+
+    /**
+     * Closes a connection.
+     *
+     * @param connection The connection.
+     */
+    private void close(Connection connection) {
+        connections.remove(connection);
+        for (Reply reply : connection.replies) {
+            reply.abandon();
+        }
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException ignore) {
+        }
+    }
+
+    /**
+     * Closes every connection, the listening channel and the selector.
+     */
+    private void closeAll() {
+        for (Connection connection : new ArrayList<>(connections)) {
+            close(connection);
+        }
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException ignore) {
+        }
+    }
+
+    /**
+     * Starts the server on port 7777 with the shared chain of VerifyingServerTCP, so that
+     * SigningClientTCP works with it unchanged.
+     *
+     * @param args Command line arguments (not used). -Dnio.workers=N sets the worker threads
+     *             (default: the number of processors); the -D options of VerifyingServerTCP
+     *             for the chain, mining and mempool apply as well.
+     * @throws IOException if the port cannot be bound.
+     */
+    public static void main(String[] args) throws IOException {
+        final int listenPort = 7777;
+        System.out.println("Blockchain Verification Server (NIO) is running.");
+        VerifyingServerTCP.prepareChain();
+        NioVerifyingServer server = new NioVerifyingServer(listenPort,
+                Integer.getInteger("nio.workers", Runtime.getRuntime().availableProcessors()));
+        // On exit, stop reading requests and finish the replies already owed, then stop mining and close the chain
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(Long.getLong("server.shutdown.ms", 5000));
+            VerifyingServerTCP.closeChain();
+        }));
+        server.start();
+    }
+}
@@ -0,0 +1,227 @@
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The ParallelMiner class performs proof-of-work for a Block using a pool of worker threads.
+ *
+ * The nonce space is split across the workers by striding: with W workers, worker w tries
+ * nonces start + w, start + w + W, start + w + 2W, and so on. As soon as any worker finds a
+ * valid hash, the lowest valid nonce found so far is published and every worker stops once
+ * its next candidate is above it. The result is therefore the same nonce (and hash) that the
+ * single-threaded Block.proofOfWork() would have found, only found sooner.
+ *
+ * A miner with a single worker runs the search on the calling thread. When mining on behalf
+ * of a MiningJob, the workers report their attempts to the job and stop when it is cancelled
+ * or runs past its deadline.
+ *
+ * Author: Vishakha Pathak (vmpathak@andrew.cmu.edu)
+ * Last Modified: 10/18/2026
+ */
+public class ParallelMiner {
+    /**
+     * The number of worker threads used to search the nonce space.
+     */
+    private final int workers;
+
+    /**
+     * The number of attempts a worker makes between two checks of its MiningJob.
+     */
+    private static final int JOB_CHECK_INTERVAL = 4096;
+
+    /**
+     * The thread pool the workers run on, or null when there is a single worker.
+     */
+    private final ExecutorService pool;
+
+    /**
+     * The hashes per second achieved by each worker during the most recent mine() call.
+     */
+    private volatile double[] lastHashRates;
+
+    /**
+     * Constructs a miner with the given number of worker threads.
+     *
+     * @param workers The number of worker threads; must be at least 1.
+     */
+    public ParallelMiner(int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Worker count must be at least 1: " + workers);
+        }
+        this.workers = workers;
+        this.pool = workers == 1 ? null : Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "miner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.lastHashRates = new double[0];
+    }
+
+    /**
+     * Finds the lowest nonce, starting from the block's current nonce, whose hash meets the
+     * block's difficulty. The nonce is stored in the block.
+     *
+     * @param block The block to mine.
+     * @return The valid hash that meets the difficulty requirement.
+     */
+    public String mine(Block block) {
+        return mine(block, null);
+    }
+
+    /**
+     * Finds the lowest nonce, starting from the block's current nonce, whose hash meets the
+     * block's difficulty, on behalf of a MiningJob. The nonce is stored in the block only if
+     * mining finishes; a cancelled or expired job leaves the block's nonce unchanged.
+     *
+     * @param block The block to mine.
+     * @param job   The job to report progress to and check for cancellation; may be null.
+     * @return The valid hash that meets the difficulty requirement.
+     * @throws java.util.concurrent.CancellationException if the job was cancelled or expired.
+     */
+    public String mine(Block block, MiningJob job) {
+        return mine(block, job, null);
+    }
+
+    /**
+     * Mines the block like mine(block, job), with each worker starting from a precomputed
+     * digest of the block's index, timestamp and data (see BlockHasher.headState()).
+     *
+     * @param block     The block to mine.
+     * @param job       The job to report progress to and check for cancellation; may be null.
+     * @param headState The precomputed head digest, or null.
+     * @return The valid hash that meets the difficulty requirement.
+     */
+    String mine(Block block, MiningJob job, MessageDigest headState) {
+        if (!block.hasLongNonce()) {
+            // Far beyond anything reachable in practice; let the block handle it on its own.
+            return block.proofOfWork();
+        }
+        long start = block.getNonceLong();
+        AtomicLong best = new AtomicLong(Long.MAX_VALUE);
+        long[] attempts = new long[workers];
+        long[] elapsed = new long[workers];
+        String[] found = new String[workers];
+        long[] foundNonces = new long[workers];
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int w = 0; w < workers; w++) {
+            final int worker = w;
+            tasks.add(() -> {
+                long begin = System.nanoTime();
+                long tried = 0;
+                BlockHasher hasher = new BlockHasher(block, headState);
+                for (long candidate = start + worker; candidate >= 0 && candidate < best.get(); candidate += workers) {
+                    tried++;
+                    if (hasher.tryNonce(candidate)) {
+                        found[worker] = hasher.hashHex();
+                        foundNonces[worker] = candidate;
+                        best.accumulateAndGet(candidate, Math::min);
+                        break;
+                    }
+                    if (job != null && tried % JOB_CHECK_INTERVAL == 0) {
+                        job.recordAttempts(JOB_CHECK_INTERVAL);
+                        if (job.shouldStop()) {
+                            break;
+                        }
+                    }
+                }
+                if (job != null) {
+                    job.recordAttempts(tried % JOB_CHECK_INTERVAL);
+                }
+                attempts[worker] = tried;
+                elapsed[worker] = System.nanoTime() - begin;
+                return null;
+            });
+        }
+
+        try {
+            if (pool == null) {
+                tasks.get(0).call();
+            } else {
+                for (Future<Void> result : pool.invokeAll(tasks)) {
+                    result.get();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Mining was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+
+        double[] rates = new double[workers];
+        for (int w = 0; w < workers; w++) {
+            rates[w] = elapsed[w] == 0 ? 0 : attempts[w] / (elapsed[w] / 1_000_000_000.0);
+        }
+        lastHashRates = rates;
+
+        if (job != null && job.shouldStop()) {
+            throw MiningJob.stopped();
+        }
+
+        // If the whole long range came up empty, best is still Long.MAX_VALUE and the block
+        // continues from there with BigInteger nonces.
+        block.setNonce(best.get());
+        if (best.get() == Long.MAX_VALUE) {
+            return block.proofOfWork();
+        }
+        for (int w = 0; w < workers; w++) {
+            if (found[w] != null && foundNonces[w] == best.get()) {
+                block.cacheHash(found[w]);
+            }
+        }
+        return block.calculateHash();
+    }
+
+    /**
+     * Returns the number of worker threads used by this miner.
+     *
+     * @return The worker count.
+     */
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Returns the hashes per second achieved by each worker during the most recent mine() call.
+     *
+     * @return One hash rate per worker, or an empty array if nothing has been mined yet.
+     */
+    public double[] getLastHashRates() {
+        return lastHashRates.clone();
+    }
+
+    /**
+     * Returns a one-line summary of the per-worker hash rates from the most recent mine() call.
+     *
+     * @return The hash rate summary.
+     */
+    public String describeLastRun() {
+        double[] rates = lastHashRates;
+        StringBuilder sb = new StringBuilder("Hash rates per worker:");
+        double total = 0;
+        for (int w = 0; w < rates.length; w++) {
+            sb.append(" [").append(w).append("] ").append(String.format("%.0f", rates[w]));
+            total += rates[w];
+        }
+        sb.append(" (total ").append(String.format("%.0f", total)).append(" hashes/second)");
+        return sb.toString();
+    }
+
+    /**
+     * Stops the worker threads. The miner cannot be used afterwards.
+     */
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+}
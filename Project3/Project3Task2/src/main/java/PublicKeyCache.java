@@ -0,0 +1,289 @@
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The PublicKeyCache class remembers the public keys whose client identifiers the server has
+ * already checked, so that a client sending many requests is not re-checked on every one.
+ *
+ * Checking a request's key means hashing the decimal exponent and modulus with SHA-256 to
+ * recompute the client identifier, then parsing both into BigIntegers for the signature
+ * check. A cached ClientKey holds the result of both, keyed by client identifier. It is only
+ * used for a request whose identifier, exponent and modulus text are exactly the ones that
+ * were checked, so a request naming a known identifier with some other key is checked from
+ * scratch, and rejected if the identifier does not match.
+ *
+ * There are two levels. Each connection has a Session that keeps the last key it used, which
+ * is all a connection normally needs. Behind the sessions is one cache shared by all
+ * connections, holding up to a fixed number of keys and evicting the least recently used. The
+ * counters give the hit rate of each level.
+ *
+ * Author: Vishakha Pathak (vmpathak@andrew.cmu.edu)
+ * Last Modified: 10/18/2026
+ */
+public class PublicKeyCache {
+    /**
+     * A public key whose client identifier has been checked.
+     */
+    public static final class ClientKey {
+        /**
+         * The client identifier.
+         */
+        final String clientId;
+
+        /**
+         * The public exponent as sent, in decimal.
+         */
+        final String exponentText;
+
+        /**
+         * The modulus as sent, in decimal.
+         */
+        final String modulusText;
+
+        /**
+         * The public exponent.
+         */
+        final BigInteger exponent;
+
+        /**
+         * The modulus.
+         */
+        final BigInteger modulus;
+
+        /**
+         * Constructs a checked key.
+         *
+         * @param clientId     The client identifier.
+         * @param exponentText The public exponent, in decimal.
+         * @param modulusText  The modulus, in decimal.
+         * @throws NumberFormatException if the exponent or modulus is not a decimal number.
+         */
+        ClientKey(String clientId, String exponentText, String modulusText) {
+            this.clientId = clientId;
+            this.exponentText = exponentText;
+            this.modulusText = modulusText;
+            this.exponent = new BigInteger(exponentText);
+            this.modulus = new BigInteger(modulusText);
+        }
+
+        /**
+         * Returns whether a request carries exactly this key and identifier.
+         *
+         * @param clientId     The request's client identifier.
+         * @param exponentText The request's public exponent.
+         * @param modulusText  The request's modulus.
+         * @return true if all three are the same as this key's.
+         */
+        boolean matches(String clientId, String exponentText, String modulusText) {
+            return this.clientId.equals(clientId) && this.exponentText.equals(exponentText)
+                    && this.modulusText.equals(modulusText);
+        }
+
+        /**
+         * Returns the public exponent.
+         *
+         * @return The exponent.
+         */
+        public BigInteger getExponent() {
+            return exponent;
+        }
+
+        /**
+         * Returns the modulus.
+         *
+         * @return The modulus.
+         */
+        public BigInteger getModulus() {
+            return modulus;
+        }
+    }
+
+    /**
+     * The per-connection level: the last key one connection used. A connection's pipelined
+     * requests may be checked in parallel; a stale read of the last key only means a lookup in
+     * the shared level.
+     */
+    public final class Session {
+        /**
+         * The last key checked for this connection, or null.
+         */
+        private volatile ClientKey last;
+
+        /**
+         * Returns the checked key of a request, from this session, the shared cache, or by
+         * checking it.
+         *
+         * @param clientId     The request's client identifier.
+         * @param exponentText The request's public exponent, in decimal.
+         * @param modulusText  The request's modulus, in decimal.
+         * @return The key, or null if the identifier does not belong to the key.
+         */
+        public ClientKey verify(String clientId, String exponentText, String modulusText) {
+            ClientKey cached = last;
+            if (cached != null && cached.matches(clientId, exponentText, modulusText)) {
+                sessionHits.incrementAndGet();
+                return cached;
+            }
+            ClientKey key = lookup(clientId, exponentText, modulusText);
+            if (key != null) {
+                last = key;
+            }
+            return key;
+        }
+    }
+
+    /**
+     * The shared level, in least recently used order; guarded by its own lock.
+     */
+    private final LinkedHashMap<String, ClientKey> keys;
+
+    /**
+     * The most keys the shared level holds.
+     */
+    private final int capacity;
+
+    /**
+     * Requests answered by their connection's session.
+     */
+    private final AtomicLong sessionHits = new AtomicLong();
+
+    /**
+     * Requests answered by the shared level.
+     */
+    private final AtomicLong sharedHits = new AtomicLong();
+
+    /**
+     * Requests whose key had to be checked.
+     */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Requests whose identifier did not belong to their key.
+     */
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Keys evicted from the shared level.
+     */
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Constructs a cache.
+     *
+     * @param capacity The most keys the shared level holds; at least 1.
+     */
+    public PublicKeyCache(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.keys = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ClientKey> eldest) {
+                if (size() > PublicKeyCache.this.capacity) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Starts a session for a new connection.
+     *
+     * @return The session.
+     */
+    public Session newSession() {
+        return new Session();
+    }
+
+    /**
+     * Returns the checked key of a request from the shared level, or checks and adds it.
+     *
+     * @param clientId     The request's client identifier.
+     * @param exponentText The request's public exponent, in decimal.
+     * @param modulusText  The request's modulus, in decimal.
+     * @return The key, or null if the identifier does not belong to the key.
+     */
+    public ClientKey lookup(String clientId, String exponentText, String modulusText) {
+        if (clientId == null || exponentText == null || modulusText == null) {
+            rejected.incrementAndGet();
+            return null;
+        }
+        ClientKey cached;
+        synchronized (keys) {
+            cached = keys.get(clientId);
+        }
+        if (cached != null && cached.matches(clientId, exponentText, modulusText)) {
+            sharedHits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        ClientKey key;
+        try {
+            if (!clientId.equals(clientIdFor(exponentText, modulusText))) {
+                rejected.incrementAndGet();
+                return null;
+            }
+            key = new ClientKey(clientId, exponentText, modulusText);
+        } catch (NumberFormatException e) {
+            rejected.incrementAndGet();
+            return null;
+        }
+        synchronized (keys) {
+            keys.put(clientId, key);
+        }
+        return key;
+    }
+
+    /**
+     * Computes the client identifier of a public key: the last 20 bytes of
+     * SHA-256(exponent + modulus), in hexadecimal.
+     *
+     * @param exponentText The public exponent, in decimal.
+     * @param modulusText  The modulus, in decimal.
+     * @return The client identifier.
+     */
+    public static String clientIdFor(String exponentText, String modulusText) {
+        byte[] hash = BlockHasher.newDigest().digest((exponentText + modulusText).getBytes(StandardCharsets.UTF_8));
+        byte[] idFragment = new byte[20];
+        System.arraycopy(hash, hash.length - 20, idFragment, 0, 20);
+        return BlockHasher.toHex(idFragment);
+    }
+
+    /**
+     * Returns the number of keys in the shared level.
+     *
+     * @return The key count.
+     */
+    public int size() {
+        synchronized (keys) {
+            return keys.size();
+        }
+    }
+
+    /**
+     * Returns the share of requests whose key did not have to be checked again.
+     *
+     * @return The hit rate, from 0 to 1; 0 before any request.
+     */
+    public double getHitRate() {
+        long hits = sessionHits.get() + sharedHits.get();
+        long total = hits + misses.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Returns a one-line summary of the cache and its counters.
+     *
+     * @return A string describing the hit rate of each level.
+     */
+    @Override
+    public String toString() {
+        return String.format("%.1f%% hit rate (%d per connection, %d shared, %d checked, %d rejected); "
+                        + "%d of %d keys shared, %d evicted",
+                100 * getHitRate(), sessionHits.get(), sharedHits.get(), misses.get(), rejected.get(),
+                size(), capacity, evictions.get());
+    }
+}
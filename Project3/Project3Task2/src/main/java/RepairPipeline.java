@@ -0,0 +1,152 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.security.MessageDigest;
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The RepairPipeline class re-mines the suffix of a chain with two overlapping stages.
+ *
+ * Each block's proof-of-work depends on the final hash of the block before it, so the
+ * re-mining itself has to move forward one block at a time. What does not depend on the
+ * previous block is the digest of the block's own index, timestamp and data, which comes
+ * first in the hashed input. The lookahead stage computes those digests on a separate pool,
+ * up to a fixed number of blocks ahead of the mining frontier. The frontier stage then only
+ * has to add the new previous hash: it first checks whether the block's existing nonce still
+ * meets the difficulty and accepts the block without mining if it does, and otherwise
+ * re-mines it across all worker threads of a ParallelMiner.
+ *
+ * The main method compares the pipeline with the sequential BlockChain.repairChain() on a
+ * generated chain.
+ *
+ * Author: Vishakha Pathak (vmpathak@andrew.cmu.edu)
+ * Last Modified: 10/18/2026
+ */
+public class RepairPipeline {
+    /**
+     * The default number of blocks whose head digests are prepared ahead of the frontier.
+     */
+    static final int DEFAULT_LOOKAHEAD = 64;
+
+    /**
+     * The miner used at the frontier.
+     */
+    private final ParallelMiner miner;
+
+    /**
+     * The number of blocks prepared ahead of the frontier.
+     */
+    private final int lookahead;
+
+    /**
+     * Constructs a pipeline that mines with the given miner.
+     *
+     * @param miner     The miner used at the frontier.
+     * @param lookahead The number of blocks prepared ahead of the frontier.
+     */
+    public RepairPipeline(ParallelMiner miner, int lookahead) {
+        this.miner = miner;
+        this.lookahead = Math.max(1, lookahead);
+    }
+
+    /**
+     * Re-links and, where needed, re-mines the blocks from the given index to the end.
+     *
+     * @param blocks The blocks of the chain, in order.
+     * @param from   The index of the first block to repair.
+     * @return The number of blocks that had to be re-mined.
+     */
+    public int repair(List<Block> blocks, int from) {
+        int processors = Runtime.getRuntime().availableProcessors();
+        // With a single processor the lookahead stage would only steal time from the frontier.
+        ExecutorService lookaheadPool = processors < 2 ? null : Executors.newFixedThreadPool(
+                Math.max(1, processors / 2), runnable -> {
+                    Thread thread = new Thread(runnable, "repair-lookahead");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        try {
+            ArrayDeque<CompletableFuture<MessageDigest>> prepared = new ArrayDeque<>();
+            int nextToPrepare = from;
+            int remined = 0;
+            for (int i = from; i < blocks.size(); i++) {
+                while (nextToPrepare < blocks.size() && nextToPrepare < i + lookahead) {
+                    Block upcoming = blocks.get(nextToPrepare++);
+                    prepared.add(lookaheadPool == null
+                            ? CompletableFuture.completedFuture(BlockHasher.headState(upcoming))
+                            : CompletableFuture.supplyAsync(() -> BlockHasher.headState(upcoming), lookaheadPool));
+                }
+                MessageDigest headState = prepared.poll().join();
+
+                Block block = blocks.get(i);
+                if (i > 0) {
+                    block.setPreviousHash(blocks.get(i - 1).calculateHash());
+                }
+                BlockHasher hasher = new BlockHasher(block, headState);
+                if (block.hasLongNonce() && hasher.tryNonce(block.getNonceLong())) {
+                    block.cacheHash(hasher.hashHex());
+                    continue;
+                }
+                miner.mine(block, null, headState);
+                remined++;
+            }
+            return remined;
+        } finally {
+            if (lookaheadPool != null) {
+                lookaheadPool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Builds two identical chains, corrupts an early block in both, and repairs one with the
+     * sequential repairChain() and the other with repairChainPipelined().
+     *
+     * @param args Command line arguments: optional chain length, difficulty and data length.
+     */
+    public static void main(String[] args) {
+        int length = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int difficulty = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int dataLength = args.length > 2 ? Integer.parseInt(args[2]) : 512;
+
+        System.out.println("Building two " + length + "-block chains at difficulty " + difficulty
+                + " with " + dataLength + "-byte transactions...");
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        BlockChain sequential = new BlockChain();
+        BlockChain pipelined = new BlockChain();
+        // Give both chains the same genesis block so that they end up identical.
+        pipelined.getBlock(0).setTimestamp(sequential.getBlock(0).getTimestamp());
+        pipelined.getBlock(0).setNonce(sequential.getBlock(0).getNonce());
+        pipelined.repairChain();
+        fillChain(sequential, length, difficulty, dataLength);
+        fillChain(pipelined, length, difficulty, dataLength);
+        System.setOut(console);
+        pipelined.setMiningThreads(Runtime.getRuntime().availableProcessors());
+
+        sequential.getBlock(1).setData("corrupted");
+        pipelined.getBlock(1).setData("corrupted");
+
+        RepairReport sequentialReport = sequential.repairChain();
+        RepairReport pipelinedReport = pipelined.repairChainPipelined();
+        System.out.println("Sequential repairChain():          " + sequentialReport);
+        System.out.println("Pipelined repairChainPipelined():  " + pipelinedReport);
+        System.out.println("Both chains valid: " + sequential.isChainValid() + " / " + pipelined.isChainValid());
+        System.out.println("Same chain hash: " + sequential.getChainHash().equals(pipelined.getChainHash()));
+    }
+
+    /**
+     * Adds blocks with fixed timestamps until the chain has the given length, so that chains
+     * with the same genesis block end up identical.
+     */
+    private static void fillChain(BlockChain chain, int length, int difficulty, int dataLength) {
+        String padding = "x".repeat(dataLength);
+        for (int i = chain.getChainSize(); i < length; i++) {
+            chain.addBlock(new Block(i, new Timestamp(1_700_000_000_000L + i), i + padding, difficulty));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * The RepairReport class summarizes one call to BlockChain.repairChain(): where the first
+ * broken block was, how many blocks had to be re-mined, and how long the repair took.
+ *
+ * Author: Vishakha Pathak (vmpathak@andrew.cmu.edu)
+ * Last Modified: 10/18/2026
+ */
+public class RepairReport {
+    /**
+     * The index of the first block that failed verification, or -1 if none did.
+     */
+    private final int firstInvalidIndex;
+
+    /**
+     * The number of blocks from the first invalid block onwards that were checked.
+     */
+    private final int blocksChecked;
+
+    /**
+     * The number of blocks whose proof-of-work had to be redone.
+     */
+    private final int blocksRemined;
+
+    /**
+     * The time the repair took, in milliseconds.
+     */
+    private final long elapsedMillis;
+
+    /**
+     * Constructs a repair report.
+     *
+     * @param firstInvalidIndex The index of the first invalid block, or -1 if none.
+     * @param blocksChecked     The number of blocks checked from the first invalid block onwards.
+     * @param blocksRemined     The number of blocks re-mined.
+     * @param elapsedMillis     The time the repair took, in milliseconds.
+     */
+    public RepairReport(int firstInvalidIndex, int blocksChecked, int blocksRemined, long elapsedMillis) {
+        this.firstInvalidIndex = firstInvalidIndex;
+        this.blocksChecked = blocksChecked;
+        this.blocksRemined = blocksRemined;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * Returns the index of the first block that failed verification.
+     *
+     * @return The index, or -1 if the chain was already valid.
+     */
+    public int getFirstInvalidIndex() {
+        return firstInvalidIndex;
+    }
+
+    /**
+     * Returns the number of blocks checked from the first invalid block onwards.
+     *
+     * @return The number of blocks checked.
+     */
+    public int getBlocksChecked() {
+        return blocksChecked;
+    }
+
+    /**
+     * Returns the number of blocks whose proof-of-work had to be redone.
+     *
+     * @return The number of blocks re-mined.
+     */
+    public int getBlocksRemined() {
+        return blocksRemined;
+    }
+
+    /**
+     * Returns the time the repair took.
+     *
+     * @return The elapsed time in milliseconds.
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Returns a one-line description of the repair.
+     *
+     * @return A string describing the repair.
+     */
+    @Override
+    public String toString() {
+        if (firstInvalidIndex < 0) {
+            return "No invalid blocks found; nothing was re-mined (" + elapsedMillis + " milliseconds).";
+        }
+        return "Re-mined " + blocksRemined + " of " + blocksChecked + " blocks from block " + firstInvalidIndex
+                + " onwards in " + elapsedMillis + " milliseconds.";
+    }
+}
@@ -7,21 +7,30 @@
  * */
 
 public class RequestMessage {
+    // The signed payload format this client writes: every field length-prefixed
+    public static final int PAYLOAD_VERSION = 2;
+
     // Common fields
     private String command;
     private String clientId;
     private String publicKeyE;
     private String publicKeyN;
     private String signature;
+    private int payloadVersion; // how the signed payload is assembled; 0 (absent) for the original concatenation
 
     // Fields for "addTransaction"
     private int difficulty;
+    private int difficultyBits; // optional; when set, overrides difficulty
     private String transaction;
 
     // Fields for "corruptChain"
     private int blockIndex;
     private String newData;
 
+    // Fields for "viewBlocks"
+    private int startIndex;
+    private int count;
+
     // Default constructor required for Gson
     public RequestMessage() {}
 
@@ -31,10 +40,14 @@ public class RequestMessage {
     public String getPublicKeyE() { return publicKeyE; }
     public String getPublicKeyN() { return publicKeyN; }
     public String getSignature() { return signature; }
+    public int getPayloadVersion() { return payloadVersion; }
     public int getDifficulty() { return difficulty; }
+    public int getDifficultyBits() { return difficultyBits; }
     public String getTransaction() { return transaction; }
     public int getBlockIndex() { return blockIndex; }
     public String getNewData() { return newData; }
+    public int getStartIndex() { return startIndex; }
+    public int getCount() { return count; }
 
     // Setters
     public void setCommand(String command) { this.command = command; }
@@ -42,8 +55,12 @@ public class RequestMessage {
     public void setPublicKeyE(String publicKeyE) { this.publicKeyE = publicKeyE; }
     public void setPublicKeyN(String publicKeyN) { this.publicKeyN = publicKeyN; }
     public void setSignature(String signature) { this.signature = signature; }
+    public void setPayloadVersion(int payloadVersion) { this.payloadVersion = payloadVersion; }
     public void setDifficulty(int difficulty) { this.difficulty = difficulty; }
+    public void setDifficultyBits(int difficultyBits) { this.difficultyBits = difficultyBits; }
     public void setTransaction(String transaction) { this.transaction = transaction; }
     public void setBlockIndex(int blockIndex) { this.blockIndex = blockIndex; }
     public void setNewData(String newData) { this.newData = newData; }
+    public void setStartIndex(int startIndex) { this.startIndex = startIndex; }
+    public void setCount(int count) { this.count = count; }
 }
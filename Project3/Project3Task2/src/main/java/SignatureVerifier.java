@@ -0,0 +1,135 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The SignatureVerifier class is the stage that checks incoming requests before they are
+ * handled: it parses each JSON line, checks that the client identifier belongs to the public
+ * key, and checks the RSA signature with modPow.
+ *
+ * Every check runs on a fixed pool of threads shared by all connections, so verification uses
+ * at most that many processors however many clients are connected; a connection waits for its
+ * checks rather than running them itself. The requests a connection has pipelined can be handed
+ * over as a batch; they are checked in parallel and the results come back in the order of the
+ * lines, so the connection still handles and answers them in order. BlockBenchmarks measures
+ * the checks per second for pools of increasing size.
+ *
+ * Author: Vishakha Pathak (vmpathak@andrew.cmu.edu)
+ * Last Modified: 10/18/2026
+ */
+public class SignatureVerifier {
+    /**
+     * The outcome of checking one request line.
+     */
+    static final class Checked {
+        /**
+         * The parsed request, or null if the line is not a JSON request.
+         */
+        final RequestMessage request;
+
+        /**
+         * The error to reply with, or null if the request is genuine.
+         */
+        final String error;
+
+        /**
+         * Constructs an outcome.
+         *
+         * @param request The parsed request.
+         * @param error   The error to reply with, or null.
+         */
+        Checked(RequestMessage request, String error) {
+            this.request = request;
+            this.error = error;
+        }
+    }
+
+    /**
+     * The threads that check requests.
+     */
+    private final ExecutorService pool;
+
+    /**
+     * The number of threads in the pool.
+     */
+    private final int threads;
+
+    /**
+     * Constructs a verifier.
+     *
+     * @param threads The number of threads that check requests; at least 1.
+     */
+    public SignatureVerifier(int threads) {
+        this.threads = Math.max(1, threads);
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, "verifier-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.pool = Executors.newFixedThreadPool(this.threads, factory);
+    }
+
+    /**
+     * Checks one request line on the caller's thread.
+     *
+     * @param line The request line.
+     * @param keys The connection's session with the key cache.
+     * @return The outcome.
+     */
+    static Checked checkNow(String line, PublicKeyCache.Session keys) {
+        RequestMessage request = VerifyingServerTCP.readRequest(line);
+        return new Checked(request, VerifyingServerTCP.verificationError(request, keys));
+    }
+
+    /**
+     * Checks one request line on the pool.
+     *
+     * @param line The request line.
+     * @param keys The connection's session with the key cache.
+     * @return The outcome, when it is ready.
+     */
+    CompletableFuture<Checked> check(String line, PublicKeyCache.Session keys) {
+        return CompletableFuture.supplyAsync(() -> checkNow(line, keys), pool);
+    }
+
+    /**
+     * Checks a batch of request lines from one connection in parallel on the pool, even a
+     * batch of one, and waits for the outcomes.
+     *
+     * @param lines The request lines, in the order they arrived.
+     * @param keys  The connection's session with the key cache.
+     * @return The outcomes, in the same order as the lines.
+     */
+    List<Checked> checkAll(List<String> lines, PublicKeyCache.Session keys) {
+        List<CompletableFuture<Checked>> pending = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            pending.add(check(line, keys));
+        }
+        List<Checked> outcomes = new ArrayList<>(lines.size());
+        for (CompletableFuture<Checked> outcome : pending) {
+            outcomes.add(outcome.join());
+        }
+        return outcomes;
+    }
+
+    /**
+     * Returns the number of threads that check requests.
+     *
+     * @return The pool size.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Stops the pool's threads.
+     */
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -4,6 +4,7 @@ import java.math.BigInteger;
 import java.net.Socket;
 import java.security.MessageDigest;
 import java.security.SecureRandom;
+import java.util.Base64;
 import java.util.Scanner;
 
 /**
@@ -54,6 +55,9 @@ public class SigningClientTCP {
                 System.out.println("4. Corrupt the chain.");
                 System.out.println("5. Hide the corruption by repairing the chain.");
                 System.out.println("6. Quit");
+                System.out.println("7. Download the blockchain in binary form.");
+                System.out.println("8. View a range of blocks.");
+                System.out.println("9. Stream the blockchain block by block.");
                 System.out.print("Enter your selection: ");
                 int userChoice = Integer.parseInt(inputScanner.nextLine());
 
@@ -64,8 +68,15 @@ public class SigningClientTCP {
                         break;
                     case 1:
                         request.setCommand("addTransaction");
-                        System.out.print("Enter difficulty > 1: ");
-                        request.setDifficulty(Integer.parseInt(inputScanner.nextLine()));
+                        System.out.print("Enter difficulty > 1 (hex digits, or bits with a b suffix, e.g. 18b): ");
+                        String difficultyInput = inputScanner.nextLine().trim();
+                        if (difficultyInput.endsWith("b")) {
+                            int bits = Integer.parseInt(difficultyInput.substring(0, difficultyInput.length() - 1));
+                            request.setDifficulty(bits / 4);
+                            request.setDifficultyBits(bits);
+                        } else {
+                            request.setDifficulty(Integer.parseInt(difficultyInput));
+                        }
                         System.out.print("Enter transaction details: ");
                         request.setTransaction(inputScanner.nextLine());
                         break;
@@ -88,17 +99,24 @@ public class SigningClientTCP {
                     case 6:
                         exitLoop = true;
                         continue;
+                    case 7:
+                        request.setCommand("downloadBlockchain");
+                        break;
+                    case 8:
+                        request.setCommand("viewBlocks");
+                        System.out.print("Enter index of first block: ");
+                        request.setStartIndex(Integer.parseInt(inputScanner.nextLine()));
+                        System.out.print("Enter number of blocks (at most 1000): ");
+                        request.setCount(Integer.parseInt(inputScanner.nextLine()));
+                        break;
+                    case 9:
+                        request.setCommand("streamBlockchain");
+                        break;
                     default:
                         System.out.println("Invalid selection. Please try again.");
                         continue;
                 }
-                // Set common fields for signing
-                request.setClientId(clientIdentifier);
-                request.setPublicKeyE(rsaPublicExponent.toString());
-                request.setPublicKeyN(rsaModulus.toString());
-                // Assemble and sign payload
-                String assembledPayload = assemblePayload(request);
-                request.setSignature(createSignature(assembledPayload));
+                signRequest(request);
 
                 // Transmit JSON request
                 String jsonRequest = jsonUtil.toJson(request);
@@ -112,15 +130,45 @@ public class SigningClientTCP {
                     break;
                 }
                 ResponseMessage response = jsonUtil.fromJson(jsonResponse, ResponseMessage.class);
+                // A streamed chain arrives one block per line; print each and drop it before reading the next
+                while ("block".equals(response.getStatus())) {
+                    System.out.println(response.getMessage());
+                    jsonResponse = netReader.readLine();
+                    if (jsonResponse == null) {
+                        break;
+                    }
+                    response = jsonUtil.fromJson(jsonResponse, ResponseMessage.class);
+                }
+                if (jsonResponse == null) {
+                    System.out.println("Stream ended early; connection may have terminated.");
+                    break;
+                }
                 System.out.println(response.getMessage());
+                if ("downloadBlockchain".equals(request.getCommand()) && "success".equals(response.getStatus())) {
+                    // Decode the BlockCodec chain and show each block in the usual JSON form
+                    for (Block block : BlockCodec.readChain(Base64.getDecoder().decode(response.getChain()))) {
+                        System.out.println("  " + block);
+                    }
+                }
             }
         } catch (IOException e) {
             System.out.println("Network I/O Exception: " + e.getMessage());
         }
     }
 
+    // Sets the common fields of a request and signs it with this client's key.
+    static void signRequest(RequestMessage request) {
+        request.setClientId(clientIdentifier);
+        request.setPublicKeyE(rsaPublicExponent.toString());
+        request.setPublicKeyN(rsaModulus.toString());
+        request.setPayloadVersion(RequestMessage.PAYLOAD_VERSION);
+        // Assemble and sign payload
+        String assembledPayload = assemblePayload(request);
+        request.setSignature(createSignature(assembledPayload));
+    }
+
     // Initializes RSA key components and computes client identifier.
-    private static void initRSAKeys(int bits) {
+    static void initRSAKeys(int bits) {
         SecureRandom randomSource = new SecureRandom();
         BigInteger prime1 = BigInteger.probablePrime(bits / 2, randomSource);
         BigInteger prime2 = BigInteger.probablePrime(bits / 2, randomSource);
@@ -156,22 +204,34 @@ public class SigningClientTCP {
     }
 
     // Assembles the payload string from the request fields (order must match server verification).
+    // Every field, starting with the payload version, is length-prefixed, so no two different requests sign the same bytes.
     private static String assemblePayload(RequestMessage req) {
         StringBuilder payloadBuilder = new StringBuilder();
-        payloadBuilder.append(req.getClientId() == null ? "" : req.getClientId());
-        payloadBuilder.append(req.getPublicKeyE() == null ? "" : req.getPublicKeyE());
-        payloadBuilder.append(req.getPublicKeyN() == null ? "" : req.getPublicKeyN());
-        payloadBuilder.append(req.getCommand() == null ? "" : req.getCommand());
+        appendField(payloadBuilder, req.getPayloadVersion());
+        appendField(payloadBuilder, req.getClientId());
+        appendField(payloadBuilder, req.getPublicKeyE());
+        appendField(payloadBuilder, req.getPublicKeyN());
+        appendField(payloadBuilder, req.getCommand());
         if ("addTransaction".equals(req.getCommand())) {
-            payloadBuilder.append(req.getDifficulty());
-            payloadBuilder.append(req.getTransaction() == null ? "" : req.getTransaction());
+            appendField(payloadBuilder, req.getDifficulty());
+            appendField(payloadBuilder, req.getDifficultyBits());
+            appendField(payloadBuilder, req.getTransaction());
         } else if ("corruptChain".equals(req.getCommand())) {
-            payloadBuilder.append(req.getBlockIndex());
-            payloadBuilder.append(req.getNewData() == null ? "" : req.getNewData());
+            appendField(payloadBuilder, req.getBlockIndex());
+            appendField(payloadBuilder, req.getNewData());
+        } else if ("viewBlocks".equals(req.getCommand())) {
+            appendField(payloadBuilder, req.getStartIndex());
+            appendField(payloadBuilder, req.getCount());
         }
         return payloadBuilder.toString();
     }
 
+    // Appends one payload field as its length in characters, a colon and its text; null counts as empty.
+    private static void appendField(StringBuilder payloadBuilder, Object field) {
+        String text = field == null ? "" : field.toString();
+        payloadBuilder.append(text.length()).append(':').append(text);
+    }
+
     // Creates a digital signature by raising the SHA-256 hash of the payload to the RSA private exponent modulo modulus.
     private static String createSignature(String payload) {
         try {
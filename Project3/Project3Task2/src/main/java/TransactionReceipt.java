@@ -0,0 +1,141 @@
+import java.util.List;
+
+/**
+ * The TransactionReceipt class acknowledges that a transaction from the mempool was mined into
+ * a block: where it is, and a Merkle proof that the block's root covers it.
+ *
+ * Author: Vishakha Pathak (vmpathak@andrew.cmu.edu)
+ * Last Modified: 10/18/2026
+ */
+public class TransactionReceipt {
+    /**
+     * The index of the block holding the transaction.
+     */
+    private final int blockIndex;
+
+    /**
+     * The transaction's position within the block.
+     */
+    private final int position;
+
+    /**
+     * The number of transactions in the block.
+     */
+    private final int blockTransactions;
+
+    /**
+     * The block's Merkle root.
+     */
+    private final String merkleRoot;
+
+    /**
+     * The transaction's inclusion proof, as returned by MerkleTree.proof().
+     */
+    private final List<String> proof;
+
+    /**
+     * The hash of the block.
+     */
+    private final String blockHash;
+
+    /**
+     * The difficulty the block was mined at, in bits.
+     */
+    private final int difficultyBits;
+
+    /**
+     * Constructs a receipt.
+     *
+     * @param blockIndex        The index of the block holding the transaction.
+     * @param position          The transaction's position within the block.
+     * @param blockTransactions The number of transactions in the block.
+     * @param merkleRoot        The block's Merkle root.
+     * @param proof             The transaction's inclusion proof.
+     * @param blockHash         The hash of the block.
+     * @param difficultyBits    The difficulty the block was mined at, in bits.
+     */
+    public TransactionReceipt(int blockIndex, int position, int blockTransactions, String merkleRoot,
+                              List<String> proof, String blockHash, int difficultyBits) {
+        this.blockIndex = blockIndex;
+        this.position = position;
+        this.blockTransactions = blockTransactions;
+        this.merkleRoot = merkleRoot;
+        this.proof = List.copyOf(proof);
+        this.blockHash = blockHash;
+        this.difficultyBits = difficultyBits;
+    }
+
+    /**
+     * Returns the index of the block holding the transaction.
+     *
+     * @return The block index.
+     */
+    public int getBlockIndex() {
+        return blockIndex;
+    }
+
+    /**
+     * Returns the transaction's position within the block.
+     *
+     * @return The position, from 0.
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Returns the number of transactions in the block.
+     *
+     * @return The transaction count.
+     */
+    public int getBlockTransactions() {
+        return blockTransactions;
+    }
+
+    /**
+     * Returns the block's Merkle root.
+     *
+     * @return The root in hexadecimal.
+     */
+    public String getMerkleRoot() {
+        return merkleRoot;
+    }
+
+    /**
+     * Returns the transaction's inclusion proof.
+     *
+     * @return The sibling hashes from the leaf up, each prefixed with "L:" or "R:".
+     */
+    public List<String> getProof() {
+        return proof;
+    }
+
+    /**
+     * Returns the hash of the block.
+     *
+     * @return The block hash.
+     */
+    public String getBlockHash() {
+        return blockHash;
+    }
+
+    /**
+     * Returns the difficulty the block was mined at, which may differ from the one asked for.
+     *
+     * @return The difficulty in bits.
+     */
+    public int getDifficultyBits() {
+        return difficultyBits;
+    }
+
+    /**
+     * Returns a one-line description of where the transaction was included.
+     *
+     * @return A string describing the receipt.
+     */
+    @Override
+    public String toString() {
+        return "Included in block " + blockIndex + " at position " + position + " of " + blockTransactions
+                + " (Merkle root " + merkleRoot + ", proof " + proof + ", block hash " + blockHash + ")";
+    }
+}
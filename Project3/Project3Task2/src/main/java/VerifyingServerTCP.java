@@ -1,12 +1,27 @@
 import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.file.Paths;
 import java.io.*;
 import java.math.BigInteger;
 import java.security.MessageDigest;
 import java.sql.Timestamp;
 import java.io.UnsupportedEncodingException;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 
 /**
@@ -21,29 +36,209 @@ import java.security.NoSuchAlgorithmException;
  */
 
 public class VerifyingServerTCP {
-    private static BlockChain chainData = new BlockChain();
+    // Kept in memory only, unless -Dblockchain.log=<file> names a block log to persist it to.
+    // Shared by every connection thread; BlockChain lets readers share it and serializes writers.
+    private static BlockChain chainData = openChain();
     private static Gson jsonUtil = new Gson();
+    // Time allowed for mining one block before the request is abandoned (-Dmining.timeout.ms=N, 0 = no limit)
+    private static final long miningTimeoutMillis = Long.getLong("mining.timeout.ms", 0);
+    // The highest difficulty a transaction may ask for, in bits (-Dmining.max.bits=N); harder requests are refused
+    private static final int maxDifficultyBits = Integer.getInteger("mining.max.bits", 24);
+    // Transactions wait here until the block producer mines them; -Dmempool.capacity=N bounds it
+    private static final Mempool mempool = new Mempool(Integer.getInteger("mempool.capacity", 10000));
+    // Packs up to -Dmempool.batch.size=N transactions, or those arriving within -Dmempool.batch.ms=T, into one block
+    private static final BlockProducer producer = new BlockProducer(chainData, mempool,
+            Integer.getInteger("mempool.batch.size", 100), Long.getLong("mempool.batch.ms", 200), miningTimeoutMillis);
+    // Public keys whose client identifiers were already checked; -Dkeycache.capacity=N bounds the shared level
+    private static final PublicKeyCache keyCache = new PublicKeyCache(Integer.getInteger("keycache.capacity", 1024));
+    // Checks request signatures for every connection on -Dverify.threads=N threads (default: one per processor)
+    private static final SignatureVerifier verifier = new SignatureVerifier(
+            Integer.getInteger("verify.threads", Runtime.getRuntime().availableProcessors()));
+    // Most pipelined requests from one connection verified together
+    private static final int MAX_BATCH = 64;
+    // Largest number of blocks returned by one viewBlocks request
+    private static final int MAX_PAGE_SIZE = 1000;
+    // Blocks serialized under one hold of the chain's read lock while streaming the chain
+    private static final int STREAM_CHUNK_BLOCKS = 64;
+    // Runs one ConnectionHandler per connection, on a virtual or a platform thread
+    private static ExecutorService connectionThreads;
+    // One permit per connection that may be open at once; the accept loop waits for a free one
+    private static Semaphore connectionSlots;
+    // Sockets of the connections being served, so that stop() can end them
+    private static final Set<Socket> openConnections = ConcurrentHashMap.newKeySet();
+    private static volatile ServerSocket listener;
+    private static Thread acceptor;
 
     public static void main(String[] args) {
         final int listenPort = 7777;
         System.out.println("Blockchain Verification Server is running.");
-        // Initialize blockchain with genesis block
-        Block genesisBlock = new Block(0, new Timestamp(System.currentTimeMillis()), "Genesis", 2);
-        chainData.addBlock(genesisBlock);
+        prepareChain();
+        // On exit, stop accepting and let open connections finish their current request
+        // (for up to -Dserver.shutdown.ms=N), then stop mining and close the chain
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            stop(Long.getLong("server.shutdown.ms", 5000));
+            closeChain();
+        }));
 
-        try (ServerSocket listener = new ServerSocket(listenPort)) {
+        try {
+            // -Dserver.threads=platform gives each connection its own platform thread instead of a virtual one;
+            // -Dserver.max.connections=N caps the connections served at once, the rest wait to be accepted
+            start(listenPort, System.getProperty("server.threads", "virtual"),
+                    Integer.getInteger("server.max.connections", 10000));
+        } catch (IOException e) {
+            System.out.println("Server I/O error: " + e.getMessage());
+        }
+    }
+
+    // Configures the shared chain, adds the server's genesis block if the chain is new, and starts the block producer.
+    static void prepareChain() {
+        // Mining threads can be raised with -Dmining.threads=N
+        chainData.setMiningThreads(Integer.getInteger("mining.threads", 1));
+        // -Dblockchain.target.ms=N retargets every block's difficulty toward N ms of mining; replies report the override
+        long targetBlockMillis = Long.getLong("blockchain.target.ms", 0);
+        if (targetBlockMillis > 0) {
+            chainData.setRetargeter(new DifficultyRetargeter(targetBlockMillis));
+        }
+        // Initialize blockchain with genesis block, unless it was recovered from the block log.
+        // It follows the chain's own genesis block, so it takes index 1 (a MappedBlockStore requires it).
+        if (chainData.getChainSize() == 1) {
+            Block genesisBlock = new Block(chainData.getChainSize(), new Timestamp(System.currentTimeMillis()), "Genesis", 2);
+            chainData.addBlock(genesisBlock);
+        }
+        producer.start();
+    }
+
+    // Stops the block producer, failing transactions still waiting, and closes the chain.
+    static void closeChain() {
+        producer.shutdown();
+        chainData.close();
+    }
+
+    // Binds the listening socket and starts accepting connections on a background thread.
+    // threadMode is "virtual" or "platform"; returns the port listened on (useful when port is 0).
+    static synchronized int start(int port, String threadMode, int maxConnections) throws IOException {
+        if (listener != null) {
+            throw new IllegalStateException("The server is already running.");
+        }
+        ExecutorService threads = newConnectionExecutor(threadMode);
+        ServerSocket serverSocket = new ServerSocket(port);
+        connectionThreads = threads;
+        connectionSlots = new Semaphore(maxConnections);
+        listener = serverSocket;
+        acceptor = new Thread(() -> acceptConnections(serverSocket, threads, connectionSlots), "acceptor");
+        acceptor.start();
+        return serverSocket.getLocalPort();
+    }
+
+    // Creates the executor connections run on: one new thread per connection, virtual or platform.
+    static ExecutorService newConnectionExecutor(String threadMode) {
+        switch (threadMode) {
+            case "virtual":
+                return Executors.newVirtualThreadPerTaskExecutor();
+            case "platform":
+                return Executors.newThreadPerTaskExecutor(Thread.ofPlatform().name("connection-", 0).factory());
+            default:
+                throw new IllegalArgumentException("Unknown thread mode " + threadMode + "; use virtual or platform.");
+        }
+    }
+
+    // Accepts connections until the listening socket is closed, holding a slot for each open one.
+    private static void acceptConnections(ServerSocket serverSocket, ExecutorService threads, Semaphore slots) {
+        try {
             while (true) {
-                Socket clientConn = listener.accept();
-                new Thread(new ConnectionHandler(clientConn)).start();
+                slots.acquire();
+                Socket clientConn;
+                try {
+                    clientConn = serverSocket.accept();
+                } catch (IOException e) {
+                    slots.release();
+                    throw e;
+                }
+                openConnections.add(clientConn);
+                try {
+                    threads.execute(() -> {
+                        try {
+                            new ConnectionHandler(clientConn).run();
+                        } finally {
+                            openConnections.remove(clientConn);
+                            slots.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    // Shutting down between accept and execute
+                    openConnections.remove(clientConn);
+                    slots.release();
+                    clientConn.close();
+                }
+            }
+        } catch (IOException e) {
+            if (!serverSocket.isClosed()) {
+                System.out.println("Server I/O error: " + e.getMessage());
+            }
+        } catch (InterruptedException e) {
+            // Stopped while waiting for a free connection slot
+        }
+    }
+
+    // Stops the server gracefully: no new connections are accepted, idle connections are ended, and
+    // requests already being handled get their replies. Connections still open after graceMillis are closed.
+    static synchronized void stop(long graceMillis) {
+        ServerSocket serverSocket = listener;
+        if (serverSocket == null) {
+            return;
+        }
+        listener = null;
+        try {
+            serverSocket.close();
+            acceptor.interrupt();
+            acceptor.join();
+            // A connection between requests is blocked in readLine; ending its input makes readLine
+            // return null, while a request already read can still write its reply
+            for (Socket conn : openConnections) {
+                try {
+                    conn.shutdownInput();
+                } catch (IOException ignore) { }
+            }
+            connectionThreads.shutdown();
+            if (!connectionThreads.awaitTermination(graceMillis, TimeUnit.MILLISECONDS)) {
+                System.out.println("Closing " + openConnections.size() + " connections still busy after "
+                        + graceMillis + " ms.");
+                for (Socket conn : openConnections) {
+                    try {
+                        conn.close();
+                    } catch (IOException ignore) { }
+                }
+                connectionThreads.shutdownNow();
+                connectionThreads.awaitTermination(graceMillis, TimeUnit.MILLISECONDS);
             }
         } catch (IOException e) {
             System.out.println("Server I/O error: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Returns the number of connections being served.
+    static int getOpenConnections() {
+        return openConnections.size();
+    }
+
+    // Opens the blockchain, from a memory-mapped block store or the block log when one is configured.
+    private static BlockChain openChain() {
+        // -Dblockchain.store=<base path> keeps the chain in memory-mapped files instead of on the heap
+        String storeBase = System.getProperty("blockchain.store");
+        if (storeBase != null) {
+            return new BlockChain(new MappedBlockStore(Paths.get(storeBase)));
         }
+        String logFile = System.getProperty("blockchain.log");
+        return logFile == null ? new BlockChain() : new BlockChain(Paths.get(logFile));
     }
 
     // Handles each client connection persistently.
     static class ConnectionHandler implements Runnable {
         private Socket conn;
+        // The key this connection last used, in front of the shared key cache
+        private final PublicKeyCache.Session keys = keyCache.newSession();
 
         public ConnectionHandler(Socket connection) {
             this.conn = connection;
@@ -55,33 +250,24 @@ public class VerifyingServerTCP {
                  PrintWriter netWriter = new PrintWriter(new BufferedWriter(new OutputStreamWriter(conn.getOutputStream())), true)) {
 
                 String incomingJSON;
+                List<String> batch = new ArrayList<>();
                 while ((incomingJSON = netReader.readLine()) != null) {
-                    System.out.println("Received JSON Request:");
-                    System.out.println(incomingJSON);
-                    RequestMessage requestMsg = jsonUtil.fromJson(incomingJSON, RequestMessage.class);
-
-                    // Validate client identifier
-                    if (!validateClientIdentifier(requestMsg)) {
-                        respondError(netWriter, "Client identifier does not match public key.");
-                        continue;
+                    // Requests the client has already pipelined are verified together, then handled in order
+                    batch.clear();
+                    batch.add(incomingJSON);
+                    while (batch.size() < MAX_BATCH && netReader.ready() && (incomingJSON = netReader.readLine()) != null) {
+                        batch.add(incomingJSON);
                     }
-                    // Validate digital signature
-                    if (!checkSignature(requestMsg)) {
-                        respondError(netWriter, "Digital signature verification failed.");
-                        continue;
+                    for (SignatureVerifier.Checked checked : verifier.checkAll(batch, keys)) {
+                        if (checked.error != null) {
+                            respondError(netWriter, checked.error);
+                        } else if ("streamBlockchain".equals(checked.request.getCommand())) {
+                            streamBlockchain(netWriter);
+                        } else {
+                            netWriter.print(replyLine(handleRequest(checked.request)));
+                            netWriter.flush();
+                        }
                     }
-                    System.out.println("Client public key details:");
-                    System.out.println("  Exponent: " + requestMsg.getPublicKeyE());
-                    System.out.println("  Modulus: " + requestMsg.getPublicKeyN());
-                    System.out.println("Signature validation successful.");
-
-                    ResponseMessage reply = handleRequest(requestMsg);
-                    String replyJSON = jsonUtil.toJson(reply);
-                    System.out.println("Replying with JSON:");
-                    System.out.println(replyJSON);
-                    System.out.println("Blockchain size: " + chainData.getChainSize());
-                    netWriter.println(replyJSON);
-                    netWriter.flush();
                 }
                 System.out.println("Client disconnected: " + conn.getRemoteSocketAddress());
             } catch (IOException e) {
@@ -94,40 +280,141 @@ public class VerifyingServerTCP {
         }
     }
 
-    // Sends an error response.
-    private static void respondError(PrintWriter writer, String errorText) {
+    // Logs and parses one request line; returns null if it is not a JSON request.
+    static RequestMessage readRequest(String incomingJSON) {
+        System.out.println("Received JSON Request:");
+        System.out.println(incomingJSON);
+        try {
+            return jsonUtil.fromJson(incomingJSON, RequestMessage.class);
+        } catch (JsonSyntaxException e) {
+            return null;
+        }
+    }
+
+    // Returns the stage that checks request signatures.
+    static SignatureVerifier getVerifier() {
+        return verifier;
+    }
+
+    // Starts a connection's session with the key cache.
+    static PublicKeyCache.Session newKeySession() {
+        return keyCache.newSession();
+    }
+
+    // Checks the request's client identifier and digital signature; returns the error to reply with, or null if both are valid.
+    // The identifier is only recomputed, and the key only parsed, the first time a key is seen.
+    static String verificationError(RequestMessage requestMsg, PublicKeyCache.Session keys) {
+        if (requestMsg == null || requestMsg.getCommand() == null) {
+            return "Malformed request.";
+        }
+        // The original payload does not cover the fields added since, so they would go unsigned
+        if (requestMsg.getPayloadVersion() == 0 && (requestMsg.getDifficultyBits() != 0
+                || requestMsg.getStartIndex() != 0 || requestMsg.getCount() != 0)) {
+            return "Requests using difficultyBits, startIndex or count must be signed with payloadVersion "
+                    + RequestMessage.PAYLOAD_VERSION + ".";
+        }
+        // Validate client identifier
+        PublicKeyCache.ClientKey clientKey = keys.verify(requestMsg.getClientId(), requestMsg.getPublicKeyE(),
+                requestMsg.getPublicKeyN());
+        if (clientKey == null) {
+            return "Client identifier does not match public key.";
+        }
+        // Validate digital signature
+        if (!checkSignature(requestMsg, clientKey)) {
+            return "Digital signature verification failed.";
+        }
+        System.out.println("Client public key details:");
+        System.out.println("  Exponent: " + requestMsg.getPublicKeyE());
+        System.out.println("  Modulus: " + requestMsg.getPublicKeyN());
+        System.out.println("Signature validation successful.");
+        return null;
+    }
+
+    // Logs a reply and returns it as one line of JSON, ending in a newline.
+    static String replyLine(ResponseMessage reply) {
+        String replyJSON = jsonUtil.toJson(reply);
+        System.out.println("Replying with JSON:");
+        System.out.println(replyJSON);
+        System.out.println("Blockchain size: " + chainData.getChainSize());
+        return replyJSON + "\n";
+    }
+
+    // Returns an error reply as one line of JSON, ending in a newline.
+    static String errorLine(String errorText) {
         ResponseMessage errorReply = new ResponseMessage();
         errorReply.setStatus("error");
         errorReply.setMessage(errorText);
-        String errorJSON = jsonUtil.toJson(errorReply);
-        writer.println(errorJSON);
-        writer.flush();
+        return jsonUtil.toJson(errorReply) + "\n";
     }
 
-    // Validates that the provided client identifier matches the last 20 bytes of SHA-256(publicExponent+modulus).
-    private static boolean validateClientIdentifier(RequestMessage req) {
-        try {
-            String combinedKeys = req.getPublicKeyE() + req.getPublicKeyN();
-            byte[] hashBytes = computeSHA256(combinedKeys);
-            byte[] idFragment = new byte[20];
-            System.arraycopy(hashBytes, hashBytes.length - 20, idFragment, 0, 20);
-            String calculatedId = convertBytesToHex(idFragment);
-            return calculatedId.equals(req.getClientId());
-        } catch (Exception e) {
-            return false;
+    // Writes the chain one block per line as it is serialized, so neither side holds all of it at once.
+    // Each block is a ResponseMessage with status "block"; a final "success" message ends the stream.
+    // STREAM_CHUNK_BLOCKS blocks at a time are serialized with the chain's read lock held and written
+    // with it released, so a slow client never holds back writers. If the chain changes between chunks,
+    // the stream ends with an "error" message instead, so a successful stream is always one snapshot.
+    // It stops early once the writer reports an error, such as a closed connection.
+    static void streamBlockchain(PrintWriter writer) {
+        long[] snapshot = new long[1];
+        int size = chainData.read(() -> {
+            snapshot[0] = chainData.getChangeCount();
+            return chainData.getChainSize();
+        });
+        for (int from = 0; from < size; from += STREAM_CHUNK_BLOCKS) {
+            int start = from;
+            String chunk = chainData.read(() -> {
+                if (chainData.getChangeCount() != snapshot[0]) {
+                    return null;
+                }
+                StringBuilder lines = new StringBuilder();
+                ResponseMessage blockReply = new ResponseMessage("block", "", "", size);
+                for (int i = start; i < Math.min(size, start + STREAM_CHUNK_BLOCKS); i++) {
+                    blockReply.setMessage(chainData.getBlock(i).toString());
+                    lines.append(jsonUtil.toJson(blockReply)).append('\n');
+                }
+                return lines.toString();
+            });
+            if (chunk == null) {
+                endChangedStream(writer, from);
+                return;
+            }
+            writer.write(chunk);
+            if (writer.checkError()) {
+                System.out.println("Stream abandoned after " + from + " blocks: the connection is gone.");
+                return;
+            }
+        }
+        ResponseMessage endReply = chainData.read(() -> chainData.getChangeCount() != snapshot[0] ? null
+                : new ResponseMessage("success", "Streamed " + size + " blocks. Chain hash: " + chainData.getChainHash(), "", size));
+        if (endReply == null) {
+            endChangedStream(writer, size);
+            return;
         }
+        writer.write(jsonUtil.toJson(endReply));
+        writer.write('\n');
+        writer.flush();
+        System.out.println("Streamed " + size + " blocks.");
+    }
+
+    // Ends a stream whose chain changed after the given number of blocks were sent.
+    private static void endChangedStream(PrintWriter writer, int sent) {
+        respondError(writer, "The chain changed while it was streamed after " + sent + " blocks; request it again.");
+        System.out.println("Stream abandoned: the chain changed.");
+    }
+
+    // Sends an error response.
+    private static void respondError(PrintWriter writer, String errorText) {
+        writer.print(errorLine(errorText));
+        writer.flush();
     }
 
     // Checks the digital signature by reconstructing the payload and decrypting the signature.
-    private static boolean checkSignature(RequestMessage req) {
+    private static boolean checkSignature(RequestMessage req, PublicKeyCache.ClientKey clientKey) {
         try {
             String payloadStr = assemblePayload(req);
             byte[] payloadHash = computeSHA256(payloadStr);
             BigInteger expectedHash = new BigInteger(1, payloadHash);
             BigInteger signatureVal = new BigInteger(req.getSignature());
-            BigInteger pubExponent = new BigInteger(req.getPublicKeyE());
-            BigInteger pubModulus = new BigInteger(req.getPublicKeyN());
-            BigInteger decryptedSig = signatureVal.modPow(pubExponent, pubModulus);
+            BigInteger decryptedSig = signatureVal.modPow(clientKey.getExponent(), clientKey.getModulus());
             return expectedHash.equals(decryptedSig);
         } catch (Exception e) {
             return false;
@@ -140,17 +427,39 @@ public class VerifyingServerTCP {
         return md.digest(input.getBytes("UTF-8"));
     }
 
-    // Converts a byte array into its hexadecimal string representation.
-    private static String convertBytesToHex(byte[] data) {
-        StringBuilder hexOut = new StringBuilder();
-        for (byte b : data) {
-            hexOut.append(String.format("%02x", b));
+    // Reassembles the payload string from request fields, in the format the request says it was signed in.
+    // Version 2 length-prefixes every field, starting with the version, so no two different requests sign
+    // the same bytes however their fields run into each other. Version 0 is the original concatenation,
+    // still accepted from existing clients; it covers only the original fields (see verificationError).
+    private static String assemblePayload(RequestMessage req) {
+        if (req.getPayloadVersion() == 0) {
+            return assembleLegacyPayload(req);
+        }
+        if (req.getPayloadVersion() != RequestMessage.PAYLOAD_VERSION) {
+            throw new IllegalArgumentException("Unknown payload version " + req.getPayloadVersion() + ".");
+        }
+        StringBuilder payload = new StringBuilder();
+        appendField(payload, req.getPayloadVersion());
+        appendField(payload, req.getClientId());
+        appendField(payload, req.getPublicKeyE());
+        appendField(payload, req.getPublicKeyN());
+        appendField(payload, req.getCommand());
+        if ("addTransaction".equals(req.getCommand())) {
+            appendField(payload, req.getDifficulty());
+            appendField(payload, req.getDifficultyBits());
+            appendField(payload, req.getTransaction());
+        } else if ("corruptChain".equals(req.getCommand())) {
+            appendField(payload, req.getBlockIndex());
+            appendField(payload, req.getNewData());
+        } else if ("viewBlocks".equals(req.getCommand())) {
+            appendField(payload, req.getStartIndex());
+            appendField(payload, req.getCount());
         }
-        return hexOut.toString();
+        return payload.toString();
     }
 
-    // Reassembles the payload string from request fields.
-    private static String assemblePayload(RequestMessage req) {
+    // Reassembles the payload the original clients sign: the fields concatenated as they are.
+    private static String assembleLegacyPayload(RequestMessage req) {
         String payload = (req.getClientId() == null ? "" : req.getClientId())
                 + (req.getPublicKeyE() == null ? "" : req.getPublicKeyE())
                 + (req.getPublicKeyN() == null ? "" : req.getPublicKeyN())
@@ -165,6 +474,52 @@ public class VerifyingServerTCP {
         return payload;
     }
 
+    // Appends one payload field as its length in characters, a colon and its text; null counts as empty.
+    private static void appendField(StringBuilder payload, Object field) {
+        String text = field == null ? "" : field.toString();
+        payload.append(text.length()).append(':').append(text);
+    }
+
+    // Processes the request; addTransaction's reply completes once its block is mined, without holding a thread.
+    static CompletableFuture<ResponseMessage> handleRequestAsync(RequestMessage req) {
+        if ("addTransaction".equals(req.getCommand())) {
+            return addTransaction(req);
+        }
+        return CompletableFuture.completedFuture(handleRequest(req));
+    }
+
+    // Submits a transaction to the mempool; the reply completes when the block holding it is mined or fails.
+    private static CompletableFuture<ResponseMessage> addTransaction(RequestMessage req) {
+        int difficultyBits = req.getDifficultyBits() > 0 ? req.getDifficultyBits() : req.getDifficulty() * 4;
+        if (difficultyBits > maxDifficultyBits) {
+            // The producer mines one block at a time, so one very hard block would hold back every client
+            ResponseMessage reply = new ResponseMessage();
+            reply.setStatus("error");
+            reply.setMessage("Transaction not added: the requested difficulty of " + difficultyBits
+                    + " bits is above this server's limit of " + maxDifficultyBits + " bits.");
+            return CompletableFuture.completedFuture(reply);
+        }
+        return mempool.submit(req.getTransaction(), difficultyBits).handle((receipt, failure) -> {
+            ResponseMessage reply = new ResponseMessage();
+            if (failure == null) {
+                reply.setStatus("success");
+                String message = "Transaction added. " + receipt;
+                // Retargeting picks every block's difficulty; say so rather than ignore the request silently
+                if (chainData.getRetargeter() != null && receipt.getDifficultyBits() != difficultyBits) {
+                    message += " The requested difficulty of " + difficultyBits + " bits was overridden by retargeting;"
+                            + " the block was mined at " + receipt.getDifficultyBits() + " bits.";
+                }
+                reply.setMessage(message);
+            } else {
+                reply.setStatus("error");
+                reply.setMessage(failure instanceof TimeoutException
+                        ? "Mining timed out after " + miningTimeoutMillis + " milliseconds; the chain was not changed."
+                        : "Transaction not added: " + failure.getMessage());
+            }
+            return reply;
+        });
+    }
+
     // Processes the request and returns an appropriate response.
     private static ResponseMessage handleRequest(RequestMessage req) {
         ResponseMessage reply = new ResponseMessage();
@@ -175,7 +530,13 @@ public class VerifyingServerTCP {
                         (chainData.getLatestBlock() != null ? chainData.getLatestBlock().getDifficulty() : "N/A") + "\n" +
                         "Total chain difficulty: " + chainData.getTotalDifficulty() + "\n" +
                         "Hashes per second: " + chainData.getHashesPerSecond() + "\n" +
-                        "Expected total hashes: " + String.format("%.6f", chainData.getTotalExpectedHashes()) + "\n" +
+                        "Hash-rate calibration: " +
+                        (chainData.getHashRate() != null ? chainData.getHashRate() : "still running") + "\n" +
+                        "Expected total hashes: " + chainData.getTotalExpectedHashesExact() + "\n" +
+                        "Mempool: " + producer + "\n" +
+                        "Public key cache: " + keyCache + "\n" +
+                        "Difficulty retargeting: " +
+                        (chainData.getRetargeter() != null ? chainData.getRetargeter() : "off") + "\n" +
                         "Nonce of latest block: " +
                         (chainData.getLatestBlock() != null ? chainData.getLatestBlock().getNonce() : "N/A") + "\n" +
                         "Chain hash: " + chainData.getChainHash();
@@ -183,14 +544,20 @@ public class VerifyingServerTCP {
                 reply.setMessage(statusMsg);
                 break;
             case "addTransaction":
-                Block newBlock = new Block(chainData.getChainSize(), new Timestamp(System.currentTimeMillis()),
-                        req.getTransaction(), req.getDifficulty());
-                chainData.addBlock(newBlock);
-                reply.setStatus("success");
-                reply.setMessage("Transaction added.");
+                // Accepted into the mempool at once; the reply waits until the block holding it is mined
+                try {
+                    return addTransaction(req).get();
+                } catch (ExecutionException e) {
+                    // addTransaction turns mining failures into error replies, so this is a bug
+                    throw new RuntimeException(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    reply.setStatus("error");
+                    reply.setMessage("Interrupted while waiting for the transaction to be mined.");
+                }
                 break;
             case "verifyChain":
-                String validity = chainData.isChainValid();
+                String validity = chainData.isChainValidParallel();
                 reply.setStatus(validity.equals("TRUE") ? "success" : "error");
                 reply.setMessage("Chain verification: " + validity);
                 break;
@@ -198,10 +565,35 @@ public class VerifyingServerTCP {
                 reply.setStatus("success");
                 reply.setMessage(chainData.toString());
                 break;
+            case "viewBlocks":
+                // One page of blocks; pages are capped so that a single reply stays small
+                int pageSize = Math.min(req.getCount(), MAX_PAGE_SIZE);
+                if (req.getStartIndex() < 0 || req.getStartIndex() >= chainData.getChainSize() || pageSize <= 0) {
+                    reply.setStatus("error");
+                    reply.setMessage("Invalid block range.");
+                } else {
+                    reply.setStatus("success");
+                    reply.setNumBlocks(chainData.getChainSize());
+                    reply.setMessage(chainData.toString(req.getStartIndex(), pageSize));
+                }
+                break;
+            case "downloadBlockchain":
+                // The whole chain in BlockCodec form, Base64-encoded to fit in the JSON reply
+                ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+                try {
+                    chainData.writeBinary(encoded);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                reply.setStatus("success");
+                reply.setNumBlocks(chainData.getChainSize());
+                reply.setChain(Base64.getEncoder().encodeToString(encoded.toByteArray()));
+                reply.setMessage("Sending " + chainData.getChainSize() + " blocks in " + encoded.size() + " bytes of binary.");
+                break;
             case "corruptChain":
                 int index = req.getBlockIndex();
                 if (index >= 0 && index < chainData.getChainSize()) {
-                    chainData.getBlock(index).setData(req.getNewData());
+                    chainData.corruptBlock(index, req.getNewData());
                     reply.setStatus("success");
                     reply.setMessage("Block " + index + " now contains: " + req.getNewData());
                 } else {
@@ -210,9 +602,9 @@ public class VerifyingServerTCP {
                 }
                 break;
             case "repairChain":
-                chainData.repairChain();
+                RepairReport report = chainData.repairChainPipelined();
                 reply.setStatus("success");
-                reply.setMessage("Blockchain repaired.");
+                reply.setMessage("Blockchain repaired. " + report);
                 break;
             default:
                 reply.setStatus("error");
@@ -0,0 +1,238 @@
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The BlockChainStressTest class hammers one BlockChain from many threads at once, the way the
+ * server's connection threads do, and checks that it stays consistent.
+ *
+ * The first phase runs writer threads adding blocks (addTransaction) against reader threads
+ * verifying the chain and reading it as JSON (verifyChain, viewBlockchain, viewStatus). Every
+ * read must see a whole chain: verification must succeed, and the JSON must be a gapless run
+ * of indexes from 0 with a chain hash. The second phase adds threads that corrupt and repair
+ * blocks (corruptChain, repairChain); after a final repair the chain must be valid, hold every
+ * block that was added, and have running totals that match the blocks. The thread counts and
+ * block counts are kept small so that the test stays quick at a low difficulty.
+ *
+ * Author: Vishakha Pathak (vmpathak@andrew.cmu.edu)
+ * Last Modified: 10/18/2026
+ */
+class BlockChainStressTest {
+    /**
+     * Problems found by any thread.
+     */
+    private final ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The number of blocks added by the writers.
+     */
+    private final AtomicInteger blocksAdded = new AtomicInteger();
+
+    /**
+     * The chain under test.
+     */
+    private BlockChain chain;
+
+    /**
+     * Where System.out pointed before the test.
+     */
+    private PrintStream console;
+
+    /**
+     * Creates a new in-memory chain. The chain reports every block it adds and repairs, so
+     * System.out is silenced while the test runs.
+     */
+    @BeforeEach
+    void createChain() {
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        chain = new BlockChain();
+    }
+
+    /**
+     * Closes the chain and restores System.out.
+     */
+    @AfterEach
+    void closeChain() {
+        chain.close();
+        System.setOut(console);
+    }
+
+    /**
+     * Runs both phases and checks that no thread saw an inconsistent chain.
+     *
+     * @throws InterruptedException if interrupted while waiting for the threads.
+     */
+    @Test
+    @Timeout(value = 120, unit = TimeUnit.SECONDS)
+    void staysConsistentUnderConcurrentClients() throws InterruptedException {
+        int genesisBlocks = chain.getChainSize();
+        writersAndReaders(4, 6, 4, 2);
+        withCorruption(4, 6, 2, 2);
+        checkFinalChain(genesisBlocks);
+        assertTrue(failures.isEmpty(), failures.size() + " problems, first: " + failures.peek());
+    }
+
+    /**
+     * Runs writers and readers together and checks every read.
+     *
+     * @param writers         The number of writer threads.
+     * @param blocksPerWriter The blocks each writer adds.
+     * @param readers         The number of reader threads.
+     * @param difficulty      The difficulty of the added blocks.
+     * @throws InterruptedException if interrupted while waiting for the threads.
+     */
+    void writersAndReaders(int writers, int blocksPerWriter, int readers, int difficulty) throws InterruptedException {
+        AtomicInteger writersLeft = new AtomicInteger(writers);
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < blocksPerWriter; i++) {
+                    chain.addBlock(new Block(0, new Timestamp(System.currentTimeMillis()),
+                            "writer " + writer + " block " + i, difficulty));
+                    blocksAdded.incrementAndGet();
+                }
+                writersLeft.decrementAndGet();
+            }, "writer-" + w));
+        }
+        for (int r = 0; r < readers; r++) {
+            int reader = r;
+            threads.add(new Thread(() -> {
+                while (writersLeft.get() > 0) {
+                    String validity = reader % 2 == 0 ? chain.isChainValid() : chain.isChainValidParallel();
+                    if (!validity.equals("TRUE")) {
+                        failures.add("Verification during writes: " + validity);
+                    }
+                    checkJson(chain.toString());
+                    if (chain.getLatestBlock().getIndex() < 0 || chain.getTotalDifficulty() <= 0) {
+                        failures.add("Status read an impossible chain.");
+                    }
+                }
+            }, "reader-" + r));
+        }
+        runAll(threads);
+    }
+
+    /**
+     * Runs writers, corrupting threads and repairing threads together, then repairs the chain
+     * once more and checks that nothing was lost.
+     *
+     * @param writers         The number of writer threads.
+     * @param blocksPerWriter The blocks each writer adds.
+     * @param corrupters      The number of threads that corrupt and repair blocks.
+     * @param difficulty      The difficulty of the added blocks.
+     * @throws InterruptedException if interrupted while waiting for the threads.
+     */
+    void withCorruption(int writers, int blocksPerWriter, int corrupters, int difficulty) throws InterruptedException {
+        AtomicInteger writersLeft = new AtomicInteger(writers);
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < blocksPerWriter; i++) {
+                    chain.addBlock(new Block(0, new Timestamp(System.currentTimeMillis()),
+                            "late writer " + writer + " block " + i, difficulty));
+                    blocksAdded.incrementAndGet();
+                }
+                writersLeft.decrementAndGet();
+            }, "late-writer-" + w));
+        }
+        for (int c = 0; c < corrupters; c++) {
+            int corrupter = c;
+            threads.add(new Thread(() -> {
+                int round = 0;
+                while (writersLeft.get() > 0) {
+                    int index = 1 + (corrupter + round * 7) % (chain.getChainSize() - 1);
+                    chain.corruptBlock(index, "corrupted by " + corrupter + " in round " + round++);
+                    if (round % 2 == 0) {
+                        chain.repairChain();
+                    } else {
+                        checkJson(chain.toString());
+                    }
+                }
+            }, "corrupter-" + c));
+        }
+        runAll(threads);
+        chain.repairChain();
+    }
+
+    /**
+     * Checks that a chain read as JSON is a gapless run of indexes from 0 with a chain hash.
+     *
+     * @param json The chain's toString().
+     */
+    private void checkJson(String json) {
+        JsonObject parsed = JsonParser.parseString(json).getAsJsonObject();
+        JsonArray blocks = parsed.getAsJsonArray("ds_chain");
+        for (int i = 0; i < blocks.size(); i++) {
+            int index = blocks.get(i).getAsJsonObject().get("index").getAsInt();
+            if (index != i) {
+                failures.add("Block at position " + i + " has index " + index + ".");
+                return;
+            }
+        }
+        if (blocks.size() == 0 || parsed.get("chainHash").getAsString().isEmpty()) {
+            failures.add("Read an empty chain.");
+        }
+    }
+
+    /**
+     * Starts the threads and waits for all of them; an exception in any thread is a failure.
+     *
+     * @param threads The threads.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    private void runAll(List<Thread> threads) throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.setUncaughtExceptionHandler((t, e) -> failures.add(t.getName() + " threw " + e));
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Checks the chain at the end: valid, every added block present once with sequential
+     * indexes, and running totals equal to the sum over the blocks.
+     *
+     * @param genesisBlocks The blocks the chain started with.
+     */
+    private void checkFinalChain(int genesisBlocks) {
+        String validity = chain.isChainValid();
+        if (!validity.equals("TRUE")) {
+            failures.add("Final verification: " + validity);
+        }
+        int size = chain.getChainSize();
+        if (size != genesisBlocks + blocksAdded.get()) {
+            failures.add("The chain has " + size + " blocks; expected " + (genesisBlocks + blocksAdded.get()) + ".");
+        }
+        long difficulty = 0;
+        for (int i = 0; i < size; i++) {
+            Block block = chain.getBlock(i);
+            if (block.getIndex() != i) {
+                failures.add("Block " + i + " has index " + block.getIndex() + ".");
+            }
+            difficulty += block.getDifficulty();
+        }
+        if (difficulty != chain.getTotalDifficulty()) {
+            failures.add("Total difficulty " + chain.getTotalDifficulty() + " but the blocks sum to " + difficulty + ".");
+        }
+    }
+}
@@ -0,0 +1,164 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for BlockCodec: round trips of every kind of block the chain holds, a null previous
+ * hash included, and rejection of blocks without data and of truncated, corrupt and
+ * unsupported input.
+ *
+ * Author: Vishakha Pathak (vmpathak@andrew.cmu.edu)
+ * Last Modified: 10/18/2026
+ */
+class BlockCodecTest {
+    /**
+     * Encodes and decodes a block, and checks that nothing the hash or the JSON form shows
+     * has changed.
+     */
+    private static Block roundTrip(Block block) {
+        byte[] bytes = BlockCodec.encode(block);
+        assertEquals(BlockCodec.VERSION, bytes[0]);
+        Block copy = BlockCodec.decode(bytes);
+        assertEquals(block.toString(), copy.toString());
+        assertEquals(block.calculateHash(), copy.calculateHash());
+        assertEquals(block.getDifficulty(), copy.getDifficulty());
+        assertEquals(block.getDifficultyBits(), copy.getDifficultyBits());
+        assertEquals(block.hasBitDifficulty(), copy.hasBitDifficulty());
+        assertEquals(block.getMerkleRoot(), copy.getMerkleRoot());
+        return copy;
+    }
+
+    private static Block genesis() {
+        Block genesis = new Block(0, new Timestamp(1_700_000_000_123L), "Genesis", 1);
+        genesis.setNonce(17);
+        return genesis;
+    }
+
+    @Test
+    void roundTripsPlainBlocks() {
+        Block genesis = genesis();
+        roundTrip(genesis);
+
+        Block linked = new Block(1, new Timestamp(1_700_000_000_456L), "x".repeat(300), 2);
+        linked.setPreviousHash(genesis.calculateHash());
+        linked.setNonce(123_456_789L);
+        roundTrip(linked);
+    }
+
+    @Test
+    void roundTripsUnusualFields() {
+        Block unusual = new Block(7, Timestamp.valueOf("2025-03-17 10:11:12.123456789"), "Unicode data: é中😀", 4);
+        unusual.setPreviousHash("not a hash");
+        unusual.setNonce(new BigInteger("123456789012345678901234567890"));
+        roundTrip(unusual);
+
+        // Upper-case hex is kept as text so that it decodes to the same string
+        Block upperCase = new Block(Integer.MAX_VALUE, new Timestamp(-5), "", 0);
+        upperCase.setPreviousHash(genesis().calculateHash().toUpperCase());
+        upperCase.setNonce(-1L);
+        roundTrip(upperCase);
+    }
+
+    @Test
+    void roundTripsDifficultyInBits() {
+        Block block = new Block(3, new Timestamp(1_700_000_000_000L), "bits", 2);
+        block.setDifficultyBits(13);
+        block.setPreviousHash(genesis().calculateHash());
+        Block copy = roundTrip(block);
+        assertTrue(copy.hasBitDifficulty());
+        assertEquals(13, copy.getDifficultyBits());
+        assertEquals(3, copy.getDifficulty());
+    }
+
+    @Test
+    void roundTripsBatchedBlocks() {
+        Block batch = Block.ofTransactions(5, new Timestamp(1_700_000_000_789L),
+                List.of("Alice pays Bob 1", "Bob pays Carol 2", "Carol pays Dave 3"), 1);
+        batch.setPreviousHash(genesis().calculateHash());
+        Block copy = roundTrip(batch);
+        assertEquals(MerkleTree.root(List.of("Alice pays Bob 1", "Bob pays Carol 2", "Carol pays Dave 3")),
+                copy.getMerkleRoot());
+    }
+
+    @Test
+    void roundTripsChains() throws IOException {
+        Block genesis = genesis();
+        Block batch = Block.ofTransactions(1, new Timestamp(1_700_000_001_000L), List.of("a", "b"), 1);
+        batch.setPreviousHash(genesis.calculateHash());
+        List<Block> blocks = List.of(genesis, batch);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BlockCodec.writeChain(blocks, out);
+        List<Block> copies = BlockCodec.readChain(out.toByteArray());
+        assertEquals(blocks.size(), copies.size());
+        for (int i = 0; i < blocks.size(); i++) {
+            assertEquals(blocks.get(i).calculateHash(), copies.get(i).calculateHash());
+        }
+    }
+
+    @Test
+    void keepsANullPreviousHashApartFromAnEmptyOne() {
+        Block unlinked = genesis();
+        unlinked.setPreviousHash(null);
+        Block copy = roundTrip(unlinked);
+        assertNull(copy.getPreviousHash());
+        // The hash input ends in "null" rather than nothing, so the two must not be confused
+        assertNotEquals(genesis().calculateHash(), copy.calculateHash());
+        assertEquals("", roundTrip(genesis()).getPreviousHash());
+    }
+
+    @Test
+    void rejectsABlockWithoutData() {
+        Block empty = new Block(3, new Timestamp(1_700_000_000_789L), null, 2);
+        assertThrows(IllegalArgumentException.class, () -> BlockCodec.encode(empty));
+        assertThrows(IllegalArgumentException.class,
+                () -> BlockCodec.writeChain(List.of(genesis(), empty), new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void rejectsTruncatedInput() {
+        Block block = new Block(1, new Timestamp(1_700_000_000_456L), "truncated", 2);
+        block.setPreviousHash(genesis().calculateHash());
+        byte[] bytes = BlockCodec.encode(block);
+        for (int length = 0; length < bytes.length; length++) {
+            byte[] prefix = Arrays.copyOf(bytes, length);
+            assertThrows(IllegalArgumentException.class, () -> BlockCodec.decode(prefix), "length " + length);
+        }
+    }
+
+    @Test
+    void rejectsCorruptInput() {
+        byte[] bytes = BlockCodec.encode(genesis());
+
+        byte[] trailing = Arrays.copyOf(bytes, bytes.length + 1);
+        assertThrows(IllegalArgumentException.class, () -> BlockCodec.decode(trailing));
+
+        // A data length running past the end of the bytes
+        byte[] longData = bytes.clone();
+        longData[bytes.length - "Genesis".length() - 1] = 100;
+        assertThrows(IllegalArgumentException.class, () -> BlockCodec.decode(longData));
+
+        byte[] chain = {5, 1};
+        assertThrows(IllegalArgumentException.class, () -> BlockCodec.readChain(chain));
+    }
+
+    @Test
+    void rejectsOtherVersions() {
+        byte[] bytes = BlockCodec.encode(genesis());
+        for (int version : new int[]{0, 1, BlockCodec.VERSION + 1}) {
+            byte[] other = bytes.clone();
+            other[0] = (byte) version;
+            assertThrows(IllegalArgumentException.class, () -> BlockCodec.decode(other), "version " + version);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for BlockLog recovery: intact records come back, a torn tail is cut off, and a log
+ * that cannot be read for any reason other than a torn tail is refused and left unchanged.
+ *
+ * Author: Vishakha Pathak (vmpathak@andrew.cmu.edu)
+ * Last Modified: 10/18/2026
+ */
+class BlockLogTest {
+    @TempDir
+    Path dir;
+
+    private static Block block(int index, String data) {
+        Block block = new Block(index, new Timestamp(1_700_000_000_000L + index), data, 1);
+        block.setPreviousHash("previous " + index);
+        block.setNonce(index);
+        return block;
+    }
+
+    /**
+     * Writes the blocks to a new log of the given name and returns its file.
+     */
+    private Path writeLog(String name, Block... blocks) throws IOException {
+        Path file = dir.resolve(name);
+        try (BlockLog log = new BlockLog(file, 1, 0)) {
+            assertTrue(log.recover().isEmpty());
+            for (Block block : blocks) {
+                log.append(block);
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Encodes one record around a payload, as append() does.
+     */
+    private static byte[] record(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return ByteBuffer.allocate(payload.length + 8).putInt(payload.length).put(payload)
+                .putInt((int) crc.getValue()).array();
+    }
+
+    /**
+     * Checks that opening the log fails and leaves the file as it was.
+     */
+    private static void assertRefused(Path file) throws IOException {
+        byte[] before = Files.readAllBytes(file);
+        try (BlockLog log = new BlockLog(file, 1, 0)) {
+            assertThrows(IOException.class, log::recover);
+        }
+        assertArrayEquals(before, Files.readAllBytes(file));
+    }
+
+    @Test
+    void recoversTheLastRecordOfEachBlock() throws IOException {
+        Path file = writeLog("chain.log", block(0, "genesis"), block(1, "first"), block(1, "first, changed"), block(2, "second"));
+        try (BlockLog log = new BlockLog(file, 1, 0)) {
+            List<Block> blocks = log.recover();
+            assertEquals(3, blocks.size());
+            assertEquals("first, changed", blocks.get(1).getData());
+            log.append(block(3, "third"));
+        }
+        try (BlockLog log = new BlockLog(file, 1, 0)) {
+            assertEquals(4, log.recover().size());
+        }
+    }
+
+    @Test
+    void cutsOffATornTail() throws IOException {
+        Path file = writeLog("torn.log", block(0, "genesis"), block(1, "first"));
+        long intact = Files.size(file);
+        byte[] torn = Arrays.copyOf(record(BlockCodec.encode(block(2, "second"))), 10);
+        Files.write(file, torn, StandardOpenOption.APPEND);
+        try (BlockLog log = new BlockLog(file, 1, 0)) {
+            assertEquals(2, log.recover().size());
+        }
+        assertEquals(intact, Files.size(file));
+    }
+
+    @Test
+    void refusesALogWithoutTheHeader() throws IOException {
+        // Records as they were written before the log had a header
+        Path file = dir.resolve("old.log");
+        Files.write(file, record(BlockCodec.encode(block(0, "genesis"))));
+        assertRefused(file);
+    }
+
+    @Test
+    void refusesALogOfAnotherCodecVersion() throws IOException {
+        Path file = writeLog("version.log", block(0, "genesis"));
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(4, BlockCodec.VERSION - 1);
+        Files.write(file, bytes);
+        assertRefused(file);
+    }
+
+    @Test
+    void refusesAnIntactRecordItCannotDecode() throws IOException {
+        Path file = writeLog("unreadable.log", block(0, "genesis"));
+        byte[] unreadable = BlockCodec.encode(block(1, "first"));
+        unreadable[0] = 1;
+        Files.write(file, record(unreadable), StandardOpenOption.APPEND);
+        assertRefused(file);
+
+        Path gap = writeLog("gap.log", block(0, "genesis"));
+        Files.write(gap, record(BlockCodec.encode(block(5, "fifth"))), StandardOpenOption.APPEND);
+        assertRefused(gap);
+    }
+}
@@ -0,0 +1,113 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for BlockProducer and its Mempool: empty transactions are refused, transactions asking
+ * for different difficulties are mined in separate blocks, easiest first, and a batch that
+ * fails unexpectedly fails only its own submitters, leaving the producer running.
+ *
+ * Author: Vishakha Pathak (vmpathak@andrew.cmu.edu)
+ * Last Modified: 10/18/2026
+ */
+@Timeout(value = 60, unit = TimeUnit.SECONDS)
+class BlockProducerTest {
+    private PrintStream console;
+
+    private BlockChain chain;
+
+    private Mempool mempool;
+
+    private BlockProducer producer;
+
+    /**
+     * Silences the chain, which reports every block it adds.
+     */
+    @BeforeEach
+    void setUp() {
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        chain = new BlockChain();
+        mempool = new Mempool(100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (producer != null) {
+            producer.shutdown();
+        }
+        chain.close();
+        System.setOut(console);
+    }
+
+    /**
+     * Returns why a receipt failed.
+     */
+    private static Throwable failure(CompletableFuture<TransactionReceipt> receipt) {
+        return assertThrows(ExecutionException.class, receipt::get).getCause();
+    }
+
+    @Test
+    void refusesEmptyTransactions() throws Exception {
+        producer = new BlockProducer(chain, mempool, 10, 0, 0);
+        producer.start();
+        assertInstanceOf(IllegalArgumentException.class, failure(mempool.submit(null, 4)));
+        assertInstanceOf(IllegalArgumentException.class, failure(mempool.submit("", 4)));
+        assertEquals(0, mempool.size());
+
+        TransactionReceipt receipt = mempool.submit("Alice pays Bob 1", 4).get();
+        assertEquals("Alice pays Bob 1", chain.getBlock(receipt.getBlockIndex()).getTransactions().get(receipt.getPosition()));
+    }
+
+    @Test
+    void minesEachDifficultyInItsOwnBlockEasiestFirst() throws Exception {
+        producer = new BlockProducer(chain, mempool, 10, 0, 0);
+        // Submitted before the producer starts, so that all three are taken as one batch
+        CompletableFuture<TransactionReceipt> hard = mempool.submit("Carol pays Dave 3", 12);
+        CompletableFuture<TransactionReceipt> easy = mempool.submit("Alice pays Bob 1", 4);
+        CompletableFuture<TransactionReceipt> alsoEasy = mempool.submit("Bob pays Carol 2", 4);
+        producer.start();
+
+        TransactionReceipt hardReceipt = hard.get();
+        TransactionReceipt easyReceipt = easy.get();
+        assertEquals(easyReceipt.getBlockIndex(), alsoEasy.get().getBlockIndex());
+        assertEquals(2, easyReceipt.getBlockTransactions());
+        assertEquals(1, hardReceipt.getBlockTransactions());
+        assertEquals(easyReceipt.getBlockIndex() + 1, hardReceipt.getBlockIndex());
+        assertEquals(4, easyReceipt.getDifficultyBits());
+        assertEquals(12, hardReceipt.getDifficultyBits());
+    }
+
+    @Test
+    void keepsProducingAfterABatchFails() throws Exception {
+        producer = new BlockProducer(chain, mempool, 10, 0, 0) {
+            @Override
+            void produce(List<Mempool.PendingTransaction> batch) throws InterruptedException {
+                if (batch.get(0).transaction.startsWith("fail")) {
+                    throw new IllegalStateException("Unexpected failure.");
+                }
+                super.produce(batch);
+            }
+        };
+        CompletableFuture<TransactionReceipt> failed = mempool.submit("fail this batch", 4);
+        producer.start();
+        assertInstanceOf(IllegalStateException.class, failure(failed));
+
+        int size = chain.getChainSize();
+        TransactionReceipt receipt = mempool.submit("Alice pays Bob 1", 4).get();
+        assertEquals(size, receipt.getBlockIndex());
+        assertEquals("TRUE", chain.isChainValid());
+    }
+}
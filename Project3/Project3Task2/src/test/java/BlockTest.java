@@ -0,0 +1,82 @@
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the hashed form of a Block: plain blocks hash exactly as they always have, a plain
+ * block and a batched block never hash alike, whatever the plain block's data, and mining
+ * hashes the same bytes as calculateHash().
+ *
+ * Author: Vishakha Pathak (vmpathak@andrew.cmu.edu)
+ * Last Modified: 10/18/2026
+ */
+class BlockTest {
+    private static final Timestamp TIME = new Timestamp(1_700_000_000_000L);
+
+    private static final List<String> TRANSACTIONS = List.of("Alice pays Bob 1", "Bob pays Carol 2");
+
+    private static Block batch() {
+        Block batch = Block.ofTransactions(1, TIME, TRANSACTIONS, 1);
+        batch.setPreviousHash("previous");
+        return batch;
+    }
+
+    private static Block plain(String data) {
+        Block plain = new Block(1, TIME, data, 1);
+        plain.setPreviousHash("previous");
+        return plain;
+    }
+
+    @Test
+    void plainBlocksKeepTheirOriginalHashes() {
+        // Hashes computed by the original Block class, before batched blocks existed
+        Block genesis = new Block(0, TIME, "Genesis", 2);
+        assertEquals("cfce182652a29194dd8af1234bea6977653484a3ffc84b5630287caacdca0fb9", genesis.calculateHash());
+
+        Block next = new Block(1, TIME, "Alice pays Bob 1", 2);
+        next.setPreviousHash(genesis.calculateHash());
+        assertEquals("0041e7296e620bc18a4e7831c2001edc8058a0cf269417a8964f5b534f42f4a1", next.proofOfWork());
+        assertEquals(6, next.getNonceLong());
+    }
+
+    @Test
+    void plainDataCannotHashLikeAMerkleRoot() {
+        Block batch = batch();
+        String root = batch.getMerkleRoot();
+        // The forms a batched block's content took, or might be taken for
+        for (String data : List.of(root, "merkle:" + root, root + "previous", root + "previous0" + Block.MERKLE_TAG)) {
+            Block plain = plain(data);
+            assertNotEquals(batch.calculateHash(), plain.calculateHash(), data);
+            assertFalse(plain.hashSuffix().endsWith(Block.MERKLE_TAG), data);
+        }
+        assertTrue(batch.hashSuffix().endsWith(Block.MERKLE_TAG));
+    }
+
+    @Test
+    void batchedBlockCommitsToItsTransactions() {
+        Block batch = batch();
+        assertEquals(MerkleTree.root(TRANSACTIONS), batch.getMerkleRoot());
+        Block other = Block.ofTransactions(1, TIME, List.of("Alice pays Bob 1", "Bob pays Carol 3"), 1);
+        other.setPreviousHash("previous");
+        assertNotEquals(batch.calculateHash(), other.calculateHash());
+    }
+
+    @Test
+    void miningHashesTheSameBytesAsCalculateHash() {
+        for (Block block : List.of(plain("mined"), batch())) {
+            String mined = block.proofOfWork();
+            assertTrue(mined.startsWith("0"), mined);
+            // Changing the nonce and back drops the memoized hash, so this hashes from scratch
+            long nonce = block.getNonceLong();
+            block.setNonce(nonce + 1);
+            block.setNonce(nonce);
+            assertEquals(mined, block.calculateHash());
+        }
+    }
+}
@@ -0,0 +1,240 @@
+import com.google.gson.Gson;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The ConnectionLoadBenchmark class compares VerifyingServerTCP's two connection models: a platform
+ * thread per connection and a virtual thread per connection.
+ *
+ * For each model it starts the server on a free port, opens many client connections that then
+ * mostly sit idle, and records what holding them costs: the platform threads alive, the heap
+ * in use after a garbage collection, and the growth of the process's resident memory. A few
+ * driver threads then send signed viewStatus requests spread over all the connections, each
+ * connection used by one driver at a time, and the round-trip latencies give the median, p99
+ * and maximum. Finally VerifyingServerTCP.stop() is timed while every client is still connected.
+ *
+ * Each model runs in its own JVM so that one model's memory does not count against the other;
+ * the JVM options of this run, such as -Xss or -Dhashrate.cache, are passed on to them. The
+ * bench profile runs it after BlockBenchmarks; ConnectionLoadTest checks the connection cap
+ * and shutdown without measuring anything.
+ *
+ * Author: Vishakha Pathak (vmpathak@andrew.cmu.edu)
+ * Last Modified: 10/18/2026
+ */
+public class ConnectionLoadBenchmark {
+    /**
+     * The number of threads sending requests.
+     */
+    private static final int DRIVERS = 8;
+
+    /**
+     * Runs one model in this JVM and prints its results.
+     *
+     * @param threadMode  "virtual" or "platform".
+     * @param connections The number of client connections to open.
+     * @param requests    The number of requests to send over them.
+     * @throws Exception if the server or a connection fails.
+     */
+    static void run(String threadMode, int connections, int requests) throws Exception {
+        // The server reports every request; only the results are printed.
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        List<Socket> sockets = new ArrayList<>(connections);
+        try {
+            String request = signedStatusRequest();
+            long rssBefore = residentKilobytes();
+            long heapBefore = usedHeap();
+            int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+
+            int port = VerifyingServerTCP.start(0, threadMode, connections);
+            long openStart = System.nanoTime();
+            for (int i = 0; i < connections; i++) {
+                sockets.add(new Socket(InetAddress.getLoopbackAddress(), port));
+            }
+            while (VerifyingServerTCP.getOpenConnections() < connections) {
+                Thread.sleep(10);
+            }
+            double openSeconds = (System.nanoTime() - openStart) / 1e9;
+            int threads = ManagementFactory.getThreadMXBean().getThreadCount() - threadsBefore;
+            long heap = usedHeap() - heapBefore;
+            long rss = residentKilobytes() - rssBefore;
+
+            long[] latencies = drive(sockets, request, requests);
+            double seconds = latencies[latencies.length - 1] / 1e9;
+            latencies = Arrays.copyOf(latencies, latencies.length - 1);
+            Arrays.sort(latencies);
+
+            // The clients stay connected; stop() has to end their idle connections itself
+            long stopStart = System.nanoTime();
+            VerifyingServerTCP.stop(5000);
+            double stopSeconds = (System.nanoTime() - stopStart) / 1e9;
+
+            console.printf("%-8s %d connections opened in %.2f s: %d more platform threads, heap +%.1f MB, "
+                            + "resident memory +%s%n",
+                    threadMode, connections, openSeconds, threads, heap / 1048576.0,
+                    rssBefore < 0 ? "unknown" : String.format("%.1f MB", rss / 1024.0));
+            console.printf("%-8s %d requests in %.2f s (%.0f/s): median %.2f ms, p99 %.2f ms, max %.2f ms; "
+                            + "stopped in %.2f s%n",
+                    threadMode, requests, seconds, requests / seconds, percentile(latencies, 50) / 1e6,
+                    percentile(latencies, 99) / 1e6, latencies[latencies.length - 1] / 1e6, stopSeconds);
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+            System.setOut(console);
+        }
+    }
+
+    /**
+     * Sends the requests from DRIVERS threads, each using its own share of the connections in
+     * turn, and times every round trip.
+     *
+     * @param sockets  The open connections.
+     * @param request  The request line to send.
+     * @param requests The total number of requests.
+     * @return The latencies in nanoseconds, followed by the elapsed time of the whole run.
+     * @throws Exception if a connection fails.
+     */
+    private static long[] drive(List<Socket> sockets, String request, int requests) throws Exception {
+        long[] latencies = new long[requests + 1];
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        List<Thread> drivers = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int d = 0; d < DRIVERS; d++) {
+            int driver = d;
+            Thread thread = new Thread(() -> {
+                try {
+                    // Driver d owns connections d, d + DRIVERS, ... and sends requests d, d + DRIVERS, ...
+                    List<BufferedReader> readers = new ArrayList<>();
+                    List<PrintWriter> writers = new ArrayList<>();
+                    for (int c = driver; c < sockets.size(); c += DRIVERS) {
+                        Socket socket = sockets.get(c);
+                        readers.add(new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8)));
+                        writers.add(new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8));
+                    }
+                    int next = 0;
+                    for (int r = driver; r < requests; r += DRIVERS) {
+                        long sent = System.nanoTime();
+                        writers.get(next).println(request);
+                        String reply = readers.get(next).readLine();
+                        latencies[r] = System.nanoTime() - sent;
+                        if (reply == null || !reply.contains("\"success\"")) {
+                            throw new IllegalStateException("Unexpected reply: " + reply);
+                        }
+                        next = (next + 1) % writers.size();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    failures.add(e);
+                }
+            }, "driver-" + d);
+            drivers.add(thread);
+            thread.start();
+        }
+        for (Thread thread : drivers) {
+            thread.join();
+        }
+        latencies[requests] = System.nanoTime() - start;
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException("A driver failed", failures.peek());
+        }
+        return latencies;
+    }
+
+    /**
+     * Builds a signed viewStatus request; it carries nothing that changes, so one line serves for
+     * every request.
+     *
+     * @return The request as a JSON line.
+     */
+    private static String signedStatusRequest() {
+        SigningClientTCP.initRSAKeys(1024);
+        RequestMessage request = new RequestMessage();
+        request.setCommand("viewStatus");
+        SigningClientTCP.signRequest(request);
+        return new Gson().toJson(request);
+    }
+
+    /**
+     * Returns a percentile of sorted values.
+     *
+     * @param sorted  The values in ascending order.
+     * @param percent The percentile, from 0 to 100.
+     * @return The value at that percentile.
+     */
+    private static long percentile(long[] sorted, int percent) {
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(rank, sorted.length - 1))];
+    }
+
+    /**
+     * Returns the heap in use after a garbage collection.
+     *
+     * @return The used heap in bytes.
+     */
+    private static long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Returns the resident memory of this process, where the operating system reports it.
+     *
+     * @return The resident set size in kilobytes, or -1 if it is not available.
+     */
+    private static long residentKilobytes() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Not Linux; resident memory is reported as unknown.
+        }
+        return -1;
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Command line arguments: optionally the number of connections (default 2000),
+     *             the number of requests (default 4000), and a thread mode to run in this JVM;
+     *             without a mode, each mode is run in a JVM of its own.
+     * @throws Exception if a run fails.
+     */
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 4000;
+        if (args.length > 2) {
+            run(args[2], connections, requests);
+            System.exit(0);
+        }
+        String java = ProcessHandle.current().info().command().orElse("java");
+        for (String mode : new String[]{"platform", "virtual"}) {
+            List<String> command = new ArrayList<>();
+            command.add(java);
+            command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+            command.addAll(List.of("-cp", System.getProperty("java.class.path"), "ConnectionLoadBenchmark",
+                    String.valueOf(connections), String.valueOf(requests), mode));
+            int exit = new ProcessBuilder(command).inheritIO().start().waitFor();
+            if (exit != 0) {
+                System.out.println(mode + " run failed with exit status " + exit);
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+import com.google.gson.Gson;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests VerifyingServerTCP's connection handling in both thread modes: no more connections
+ * are served at once than the cap allows, and stop() ends connections left idle by their
+ * clients well within its grace period, rather than waiting for them. ConnectionLoadBenchmark measures the same server under load.
+ *
+ * Author: Vishakha Pathak (vmpathak@andrew.cmu.edu)
+ * Last Modified: 10/18/2026
+ */
+class ConnectionLoadTest {
+    /**
+     * The thread modes VerifyingServerTCP.start() accepts.
+     */
+    private static final String[] THREAD_MODES = {"platform", "virtual"};
+
+    /**
+     * A signed viewStatus request; it carries nothing that changes, so one line serves for
+     * every request.
+     */
+    private static String statusRequest;
+
+    /**
+     * The client connections opened by a test.
+     */
+    private final List<Socket> sockets = new ArrayList<>();
+
+    /**
+     * Where System.out pointed before the test.
+     */
+    private PrintStream console;
+
+    @BeforeAll
+    static void signRequest() {
+        SigningClientTCP.initRSAKeys(1024);
+        RequestMessage request = new RequestMessage();
+        request.setCommand("viewStatus");
+        SigningClientTCP.signRequest(request);
+        statusRequest = new Gson().toJson(request);
+    }
+
+    /**
+     * Silences the server, which reports every request.
+     */
+    @BeforeEach
+    void silenceServer() {
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @AfterEach
+    void stopServer() throws IOException {
+        VerifyingServerTCP.stop(1000);
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+        System.setOut(console);
+    }
+
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    void servesNoMoreConnectionsThanTheCap() throws Exception {
+        for (String mode : THREAD_MODES) {
+            int port = VerifyingServerTCP.start(0, mode, 3);
+            List<Socket> clients = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                clients.add(connect(port));
+            }
+            for (int i = 0; i < 3; i++) {
+                assertTrue(roundTrip(clients.get(i)).contains("\"success\""), mode);
+            }
+            assertEquals(3, VerifyingServerTCP.getOpenConnections(), mode);
+
+            // The fourth client waits for a slot: its request is not answered
+            Socket waiting = clients.get(3);
+            waiting.setSoTimeout(500);
+            assertThrows(SocketTimeoutException.class, () -> roundTrip(waiting), mode);
+            assertEquals(3, VerifyingServerTCP.getOpenConnections(), mode);
+
+            // Until a served client leaves
+            clients.get(0).close();
+            waiting.setSoTimeout(10_000);
+            assertTrue(readLine(waiting).contains("\"success\""), mode);
+            assertTrue(VerifyingServerTCP.getOpenConnections() <= 3, mode);
+
+            VerifyingServerTCP.stop(1000);
+        }
+    }
+
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    void stopEndsEveryConnectionWithinTheGracePeriod() throws Exception {
+        for (String mode : THREAD_MODES) {
+            int port = VerifyingServerTCP.start(0, mode, 50);
+            List<Socket> clients = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                Socket client = connect(port);
+                client.setSoTimeout(10_000);
+                clients.add(client);
+            }
+            // Every connection has been served once, then sits idle
+            for (Socket client : clients) {
+                assertTrue(roundTrip(client).contains("\"success\""), mode);
+            }
+            assertEquals(clients.size(), VerifyingServerTCP.getOpenConnections(), mode);
+
+            long start = System.nanoTime();
+            VerifyingServerTCP.stop(5000);
+            long stopMillis = (System.nanoTime() - start) / 1_000_000;
+            assertTrue(stopMillis < 5000, mode + " stop took " + stopMillis + " ms");
+            assertEquals(0, VerifyingServerTCP.getOpenConnections(), mode);
+            for (Socket client : clients) {
+                assertNull(readLine(client), mode);
+            }
+
+            // The listening socket is gone, and the server can be started again
+            assertThrows(IOException.class, () -> new Socket(InetAddress.getLoopbackAddress(), port).close(), mode);
+        }
+    }
+
+    /**
+     * Opens a connection to the server and remembers it for closing after the test.
+     */
+    private Socket connect(int port) throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        sockets.add(socket);
+        return socket;
+    }
+
+    /**
+     * Sends the status request on a connection and returns the reply.
+     */
+    private static String roundTrip(Socket socket) throws IOException {
+        PrintWriter writer = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+        writer.println(statusRequest);
+        return readLine(socket);
+    }
+
+    /**
+     * Reads one line from a connection, byte by byte so that nothing past it is buffered and
+     * lost between calls.
+     */
+    private static String readLine(Socket socket) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = socket.getInputStream().read()) != -1 && b != '\n') {
+            line.append((char) b);
+        }
+        return b == -1 && line.length() == 0 ? null : line.toString();
+    }
+}
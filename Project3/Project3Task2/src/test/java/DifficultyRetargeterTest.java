@@ -0,0 +1,98 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for DifficultyRetargeter: the difficulty moves toward the one that gives the target
+ * interval, by bounded steps, and never leaves its configured range.
+ *
+ * Author: Vishakha Pathak (vmpathak@andrew.cmu.edu)
+ * Last Modified: 10/18/2026
+ */
+class DifficultyRetargeterTest {
+    /**
+     * The simulated hash rate: 2^20 hashes per second, so a one-second target is 20 bits.
+     */
+    private static final double HASHES_PER_SECOND = 1 << 20;
+
+    /**
+     * Records one block mined at the retargeter's current difficulty, taking exactly the
+     * expected time at HASHES_PER_SECOND.
+     */
+    private static int mineExpected(DifficultyRetargeter retargeter) {
+        int bits = retargeter.nextDifficultyBits();
+        retargeter.recordBlock(bits, (long) (Math.pow(2, bits) / HASHES_PER_SECOND * 1e9));
+        return retargeter.nextDifficultyBits();
+    }
+
+    @Test
+    void raisesTooEasyDifficultyTowardTarget() {
+        DifficultyRetargeter retargeter = new DifficultyRetargeter(1000, 4, 1, 64, 8);
+        int bits = retargeter.nextDifficultyBits();
+        for (int i = 0; i < 10; i++) {
+            int next = mineExpected(retargeter);
+            assertTrue(next >= bits, "blocks came too fast, but the difficulty fell from " + bits + " to " + next);
+            assertTrue(next - bits <= DifficultyRetargeter.MAX_STEP_BITS, "stepped from " + bits + " to " + next);
+            bits = next;
+        }
+        assertEquals(20, bits);
+    }
+
+    @Test
+    void lowersTooHardDifficultyTowardTarget() {
+        DifficultyRetargeter retargeter = new DifficultyRetargeter(1000, 4, 1, 64, 30);
+        int bits = retargeter.nextDifficultyBits();
+        for (int i = 0; i < 10; i++) {
+            int next = mineExpected(retargeter);
+            assertTrue(next <= bits, "blocks came too slowly, but the difficulty rose from " + bits + " to " + next);
+            assertTrue(bits - next <= DifficultyRetargeter.MAX_STEP_BITS, "stepped from " + bits + " to " + next);
+            bits = next;
+        }
+        assertEquals(20, bits);
+        assertEquals(5, retargeter.getAdjustments());
+    }
+
+    @Test
+    void staysWithinBounds() {
+        DifficultyRetargeter retargeter = new DifficultyRetargeter(1000, 4, 6, 10, 8);
+        for (int i = 0; i < 20; i++) {
+            // Far faster than the target: the difficulty wants to rise without limit
+            retargeter.recordBlock(retargeter.nextDifficultyBits(), 1);
+            assertTrue(retargeter.nextDifficultyBits() <= 10);
+        }
+        assertEquals(10, retargeter.nextDifficultyBits());
+        for (int i = 0; i < 20; i++) {
+            // Far slower than the target: the difficulty wants to fall without limit
+            retargeter.recordBlock(retargeter.nextDifficultyBits(), 3_600_000_000_000L);
+            assertTrue(retargeter.nextDifficultyBits() >= 6);
+        }
+        assertEquals(6, retargeter.nextDifficultyBits());
+
+        assertEquals(6, new DifficultyRetargeter(1000, 4, 6, 10, 1).nextDifficultyBits());
+        assertEquals(10, new DifficultyRetargeter(1000, 4, 6, 10, 99).nextDifficultyBits());
+    }
+
+    @Test
+    void keepsMeanIntervalNearTargetAsHashRateChanges() {
+        DifficultyRetargeter retargeter = new DifficultyRetargeter(1000);
+        Random random = new Random(42);
+        for (double rate : new double[]{1_000_000, 8_000_000, 250_000}) {
+            // The first blocks at a new rate are spent catching up
+            DifficultyRetargeter.simulate(retargeter, rate, 200, random);
+            double mean = DifficultyRetargeter.simulate(retargeter, rate, 1000, random);
+            assertTrue(mean > 500 && mean < 2000, "mean interval " + mean + " ms at " + rate + " hashes/second");
+        }
+    }
+
+    @Test
+    void rejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new DifficultyRetargeter(0));
+        assertThrows(IllegalArgumentException.class, () -> new DifficultyRetargeter(1000, 0, 1, 64, 8));
+        assertThrows(IllegalArgumentException.class, () -> new DifficultyRetargeter(1000, 4, 10, 6, 8));
+        assertThrows(IllegalArgumentException.class, () -> new DifficultyRetargeter(1000, 4, 1, 257, 8));
+    }
+}
@@ -0,0 +1,205 @@
+import com.google.gson.Gson;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for SignatureVerifier: the outcomes of a batch come back in the order of its lines,
+ * genuine and rejected requests mixed, every check runs on the pool, a batch of one included,
+ * and requests signed the original way are still accepted as long as every field is signed.
+ *
+ * Author: Vishakha Pathak (vmpathak@andrew.cmu.edu)
+ * Last Modified: 10/18/2026
+ */
+class SignatureVerifierTest {
+    private static final Gson GSON = new Gson();
+
+    /**
+     * The expected outcome of each line: the transaction of a genuine request, "bad json" for
+     * a line that is not JSON, or "tampered" for a request changed after it was signed.
+     */
+    private static final List<String> TRANSACTIONS = new ArrayList<>();
+
+    /**
+     * The request lines, in the order of TRANSACTIONS.
+     */
+    private static final List<String> LINES = new ArrayList<>();
+
+    private PrintStream console;
+
+    private SignatureVerifier verifier;
+
+    @BeforeAll
+    static void signRequests() {
+        SigningClientTCP.initRSAKeys(1024);
+        for (int i = 0; i < 24; i++) {
+            RequestMessage request = new RequestMessage();
+            request.setCommand("addTransaction");
+            request.setDifficulty(2);
+            request.setTransaction("payment " + i);
+            SigningClientTCP.signRequest(request);
+            if (i % 5 == 1) {
+                TRANSACTIONS.add("bad json");
+                LINES.add("not json {");
+            } else if (i % 5 == 3) {
+                request.setTransaction("payment " + i + " to someone else");
+                TRANSACTIONS.add("tampered");
+                LINES.add(GSON.toJson(request));
+            } else {
+                TRANSACTIONS.add(request.getTransaction());
+                LINES.add(GSON.toJson(request));
+            }
+        }
+    }
+
+    /**
+     * Silences the verifier, which logs every request it checks.
+     */
+    @BeforeEach
+    void setUp() {
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        verifier = new SignatureVerifier(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        verifier.shutdown();
+        System.setOut(console);
+    }
+
+    /**
+     * Checks that an outcome is the one expected for the line at an index.
+     */
+    private static void assertOutcome(int index, SignatureVerifier.Checked outcome) {
+        String transaction = TRANSACTIONS.get(index);
+        switch (transaction) {
+            case "bad json" -> {
+                assertNull(outcome.request, "line " + index);
+                assertEquals("Malformed request.", outcome.error, "line " + index);
+            }
+            case "tampered" -> assertEquals("Digital signature verification failed.", outcome.error, "line " + index);
+            default -> {
+                assertNull(outcome.error, "line " + index);
+                assertEquals(transaction, outcome.request.getTransaction(), "line " + index);
+            }
+        }
+    }
+
+    @Test
+    void batchOutcomesFollowLineOrder() {
+        for (int round = 0; round < 5; round++) {
+            List<SignatureVerifier.Checked> outcomes = verifier.checkAll(LINES, VerifyingServerTCP.newKeySession());
+            assertEquals(LINES.size(), outcomes.size());
+            for (int i = 0; i < outcomes.size(); i++) {
+                assertOutcome(i, outcomes.get(i));
+            }
+        }
+    }
+
+    @Test
+    void singleLineBatchesMatchTheirLines() {
+        PublicKeyCache.Session keys = VerifyingServerTCP.newKeySession();
+        for (int i = 0; i < LINES.size(); i++) {
+            List<SignatureVerifier.Checked> outcomes = verifier.checkAll(LINES.subList(i, i + 1), keys);
+            assertEquals(1, outcomes.size());
+            assertOutcome(i, outcomes.get(0));
+        }
+    }
+
+    @Test
+    void separateChecksKeepTheirOwnOutcomes() {
+        PublicKeyCache.Session keys = VerifyingServerTCP.newKeySession();
+        List<CompletableFuture<SignatureVerifier.Checked>> pending = new ArrayList<>();
+        for (String line : LINES) {
+            pending.add(verifier.check(line, keys));
+        }
+        for (int i = 0; i < pending.size(); i++) {
+            assertOutcome(i, pending.get(i).join());
+        }
+    }
+
+    /**
+     * Signs a request the way the original clients did: a fresh RSA key and the fields
+     * concatenated without lengths or a payload version.
+     */
+    private static String signedTheOriginalWay(RequestMessage request) throws Exception {
+        SecureRandom random = new SecureRandom();
+        BigInteger p = BigInteger.probablePrime(512, random);
+        BigInteger q = BigInteger.probablePrime(512, random);
+        BigInteger n = p.multiply(q);
+        BigInteger e = BigInteger.valueOf(65537);
+        BigInteger d = e.modInverse(p.subtract(BigInteger.ONE).multiply(q.subtract(BigInteger.ONE)));
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        byte[] keyHash = sha256.digest((e.toString() + n).getBytes(StandardCharsets.UTF_8));
+        request.setClientId(HexFormat.of().formatHex(keyHash, keyHash.length - 20, keyHash.length));
+        request.setPublicKeyE(e.toString());
+        request.setPublicKeyN(n.toString());
+        String payload = request.getClientId() + request.getPublicKeyE() + request.getPublicKeyN() + request.getCommand();
+        if ("addTransaction".equals(request.getCommand())) {
+            payload += request.getDifficulty() + request.getTransaction();
+        }
+        byte[] digest = sha256.digest(payload.getBytes(StandardCharsets.UTF_8));
+        request.setSignature(new BigInteger(1, digest).modPow(d, n).toString());
+        return GSON.toJson(request);
+    }
+
+    @Test
+    void acceptsRequestsSignedTheOriginalWay() throws Exception {
+        PublicKeyCache.Session keys = VerifyingServerTCP.newKeySession();
+        RequestMessage status = new RequestMessage();
+        status.setCommand("viewStatus");
+        assertNull(verifier.check(signedTheOriginalWay(status), keys).join().error);
+
+        RequestMessage transaction = new RequestMessage();
+        transaction.setCommand("addTransaction");
+        transaction.setDifficulty(2);
+        transaction.setTransaction("Alice pays Bob 1");
+        String line = signedTheOriginalWay(transaction);
+        assertNull(verifier.check(line, keys).join().error);
+        assertEquals("Digital signature verification failed.",
+                verifier.check(line.replace("Alice pays Bob 1", "Alice pays Bob 100"), keys).join().error);
+
+        // A field the original payload does not cover would go unsigned
+        RequestMessage bits = new RequestMessage();
+        bits.setCommand("addTransaction");
+        bits.setDifficultyBits(9);
+        bits.setTransaction("Alice pays Bob 2");
+        assertTrue(verifier.check(signedTheOriginalWay(bits), keys).join().error.contains("payloadVersion"));
+    }
+
+    @Test
+    void rejectsAnUnknownPayloadVersion() {
+        RequestMessage request = GSON.fromJson(LINES.get(0), RequestMessage.class);
+        assertNull(verifier.check(LINES.get(0), VerifyingServerTCP.newKeySession()).join().error);
+        request.setPayloadVersion(RequestMessage.PAYLOAD_VERSION + 1);
+        assertEquals("Digital signature verification failed.",
+                verifier.check(GSON.toJson(request), VerifyingServerTCP.newKeySession()).join().error);
+    }
+
+    @Test
+    void checksEvenOneLineOnThePool() {
+        verifier.shutdown();
+        // A stopped pool takes no work, so a batch checked on the caller's thread would pass
+        assertThrows(RejectedExecutionException.class,
+                () -> verifier.checkAll(LINES.subList(0, 1), VerifyingServerTCP.newKeySession()));
+    }
+}
@@ -0,0 +1,141 @@
+import com.google.gson.Gson;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for VerifyingServerTCP.streamBlockchain(): a stream sends every block and ends with
+ * the chain hash, a client that stops reading does not hold back writers, and a chain that
+ * changes under a stream ends it with an error rather than a mix of two chains.
+ *
+ * Author: Vishakha Pathak (vmpathak@andrew.cmu.edu)
+ * Last Modified: 10/18/2026
+ */
+@Timeout(value = 60, unit = TimeUnit.SECONDS)
+class StreamBlockchainTest {
+    private static final Gson GSON = new Gson();
+
+    private PrintStream console;
+
+    @BeforeAll
+    static void startChain() {
+        VerifyingServerTCP.prepareChain();
+    }
+
+    /**
+     * Silences the server, which reports every request.
+     */
+    @BeforeEach
+    void silenceServer() {
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @AfterEach
+    void restoreConsole() {
+        System.setOut(console);
+    }
+
+    /**
+     * Submits a transaction to the server's chain; the reply completes once it is mined.
+     */
+    private static CompletableFuture<ResponseMessage> addTransaction(String transaction, int difficultyBits) {
+        RequestMessage request = new RequestMessage();
+        request.setCommand("addTransaction");
+        request.setDifficultyBits(difficultyBits);
+        request.setTransaction(transaction);
+        return VerifyingServerTCP.handleRequestAsync(request);
+    }
+
+    private static ResponseMessage viewStatus() {
+        RequestMessage request = new RequestMessage();
+        request.setCommand("viewStatus");
+        return VerifyingServerTCP.handleRequestAsync(request).join();
+    }
+
+    @Test
+    void streamsEveryBlockThenTheChainHash() {
+        // More blocks than one chunk, so the stream takes the lock more than once. Transactions
+        // asking for different difficulties get blocks of their own, so each round adds 12.
+        for (int round = 0; round < 6; round++) {
+            List<CompletableFuture<ResponseMessage>> replies = new ArrayList<>();
+            for (int bits = 1; bits <= 12; bits++) {
+                replies.add(addTransaction("streamed payment " + round + "/" + bits, bits));
+            }
+            for (CompletableFuture<ResponseMessage> reply : replies) {
+                assertEquals("success", reply.join().getStatus());
+            }
+        }
+        StringWriter out = new StringWriter();
+        VerifyingServerTCP.streamBlockchain(new PrintWriter(out));
+        List<String> lines = out.toString().lines().toList();
+        ResponseMessage end = GSON.fromJson(lines.get(lines.size() - 1), ResponseMessage.class);
+        assertEquals("success", end.getStatus());
+        assertEquals(lines.size() - 1, end.getNumBlocks());
+        for (int i = 0; i < lines.size() - 1; i++) {
+            ResponseMessage block = GSON.fromJson(lines.get(i), ResponseMessage.class);
+            assertEquals("block", block.getStatus());
+            assertTrue(block.getMessage().contains("\"index\": " + i), block.getMessage());
+        }
+        String status = viewStatus().getMessage();
+        String chainHash = status.substring(status.lastIndexOf("Chain hash: "));
+        assertTrue(end.getMessage().endsWith(chainHash), end.getMessage());
+    }
+
+    @Test
+    void stalledClientDoesNotHoldBackWriters() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        StringBuilder received = new StringBuilder();
+        // A client that stops reading: its first write waits until it is released
+        OutputStream stalled = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                synchronized (received) {
+                    received.append(new String(bytes, offset, length, StandardCharsets.UTF_8));
+                }
+            }
+        };
+        Thread stream = new Thread(() -> VerifyingServerTCP.streamBlockchain(new PrintWriter(stalled)));
+        stream.start();
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+
+        // Mining a block needs the write lock, which the stalled stream must not be holding
+        assertEquals("success", addTransaction("added during a stream", 4).join().getStatus());
+
+        release.countDown();
+        stream.join();
+        List<String> lines = received.toString().lines().toList();
+        ResponseMessage end = GSON.fromJson(lines.get(lines.size() - 1), ResponseMessage.class);
+        assertEquals("error", end.getStatus());
+        assertTrue(end.getMessage().startsWith("The chain changed while it was streamed"), end.getMessage());
+    }
+}